@@ -0,0 +1,130 @@
+package benchmarks;
+
+import java.util.Random;
+import board.Attacks;
+import board.BatchAttacks;
+import board.BoardState;
+import board.MoveGen;
+
+import static constants.BoardConstants.*;
+
+/**
+ * Compares whole-side attack maps for a batch of boards: {@link BatchAttacks} (Kogge-Stone, one flat loop
+ * over the batch) against calling the scalar magic based {@link Attacks} raw API once per board.
+ * <p>
+ * The batch is built from random games, so piece counts and occupancies are realistic.
+ * Run once more with {@code -XX:-UseSuperWord} to see how much of the gain comes from auto-vectorization.
+ */
+public class BatchAttackBenchmark {
+
+    private static final int BATCH_SIZE = 4096;
+    private static final int ITERATIONS = 20_000;
+    private static final int WARMUP_ITERATIONS = 2_000;
+
+    private static final long[] PAWNS = new long[BATCH_SIZE];
+    private static final long[] KNIGHTS = new long[BATCH_SIZE];
+    private static final long[] BISHOPS_QUEENS = new long[BATCH_SIZE];
+    private static final long[] ROOKS_QUEENS = new long[BATCH_SIZE];
+    private static final long[] KINGS = new long[BATCH_SIZE];
+    private static final long[] FULL_OCC = new long[BATCH_SIZE];
+
+    private static final long[] OUT = new long[BATCH_SIZE];
+
+    public static void main(String[] args) {
+        System.out.println("Initializing Benchmark...");
+
+        fillBatch();
+
+        long checkSum = 0;
+        for (int i = 0; i < BATCH_SIZE; i++) checkSum += scalarAtk(i);
+
+        BatchAttacks.allAtk(WHITE, PAWNS, KNIGHTS, BISHOPS_QUEENS, ROOKS_QUEENS, KINGS, FULL_OCC, OUT, BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) checkSum -= OUT[i];
+
+        if (checkSum != 0) throw new IllegalStateException("batch and scalar attack maps differ");
+
+        System.out.println("Warming up JIT...");
+        checkSum = runScalar(WARMUP_ITERATIONS) ^ runBatch(WARMUP_ITERATIONS);
+
+        System.out.println("Running " + ITERATIONS + " iterations of " + BATCH_SIZE + " boards per variant...");
+
+        System.gc();
+        long start = System.nanoTime();
+        checkSum ^= runScalar(ITERATIONS);
+        long scalarNanos = System.nanoTime() - start;
+
+        System.gc();
+        start = System.nanoTime();
+        checkSum ^= runBatch(ITERATIONS);
+        long batchNanos = System.nanoTime() - start;
+
+        double boards = (double) ITERATIONS * BATCH_SIZE;
+
+        System.out.println("------------------------------------------");
+        System.out.printf("Scalar (magic): %.3f s | %.2f ns per board%n", scalarNanos / 1e9, scalarNanos / boards);
+        System.out.printf("Batch (KS):     %.3f s | %.2f ns per board%n", batchNanos / 1e9, batchNanos / boards);
+        System.out.println("------------------------------------------");
+
+        if (checkSum == 1) System.out.print("");
+    }
+
+    private static long runScalar(int iterations) {
+        long checkSum = 0;
+
+        for (int n = 0; n < iterations; n++) {
+            for (int i = 0; i < BATCH_SIZE; i++) OUT[i] = scalarAtk(i);
+            checkSum += OUT[n & (BATCH_SIZE - 1)];
+        }
+
+        return checkSum;
+    }
+
+    private static long runBatch(int iterations) {
+        long checkSum = 0;
+
+        for (int n = 0; n < iterations; n++) {
+            BatchAttacks.allAtk(WHITE, PAWNS, KNIGHTS, BISHOPS_QUEENS, ROOKS_QUEENS, KINGS, FULL_OCC, OUT, BATCH_SIZE);
+            checkSum += OUT[n & (BATCH_SIZE - 1)];
+        }
+
+        return checkSum;
+    }
+
+    private static long scalarAtk(int i) {
+        return Attacks.allAtk(WHITE, PAWNS[i], KNIGHTS[i], BISHOPS_QUEENS[i], ROOKS_QUEENS[i], KINGS[i], FULL_OCC[i]);
+    }
+
+    /**
+     * Plays random legal games and stores white's pieces of every position reached.
+     */
+    private static void fillBatch() {
+
+        Random rng = new Random(12345);
+        short[] moves = new short[MAX_MOVES];
+
+        BoardState board = new BoardState();
+        int plies = 0;
+
+        for (int i = 0; i < BATCH_SIZE; i++) {
+
+            int moveCount = MoveGen.legalMoves(board, moves);
+
+            //restart from the initial position once a game ends or runs long
+            if (moveCount == 0 || plies == 120) {
+                board = new BoardState();
+                plies = 0;
+                moveCount = MoveGen.legalMoves(board, moves);
+            }
+
+            board.makeMove(moves[rng.nextInt(moveCount)]);
+            plies++;
+
+            PAWNS[i] = board.getPieceBB(W_PAWN);
+            KNIGHTS[i] = board.getPieceBB(W_KNIGHT);
+            BISHOPS_QUEENS[i] = board.getPieceBB(W_BISHOP) | board.getPieceBB(W_QUEEN);
+            ROOKS_QUEENS[i] = board.getPieceBB(W_ROOK) | board.getPieceBB(W_QUEEN);
+            KINGS[i] = board.getPieceBB(W_KING);
+            FULL_OCC[i] = board.getOccupancy();
+        }
+    }
+}
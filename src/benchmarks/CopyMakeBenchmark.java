@@ -0,0 +1,224 @@
+package benchmarks;
+
+import java.util.Random;
+import board.BoardState;
+import board.MoveGen;
+import board.PositionStack;
+import tools.FenUtil;
+
+import static constants.BoardConstants.*;
+
+/**
+ * Compares the incremental make/unmake of {@link BoardState} with the copy-make of {@link PositionStack}.
+ * <ol>
+ * <li>Move throughput: both variants generate the legal moves of the same positions from random games with
+ * their own {@link MoveGen#legalMoves} overload, then make and unmake every move, reading the hash of each
+ * child position.</li>
+ * <li>Search: a perft of the Kiwipete position to {@link #PERFT_DEPTH}, once per variant.</li>
+ * </ol>
+ * {@link BoardState} also keeps the pawn and material keys and the score up to date, the stack only the
+ * 16 longs of its slots, so the numbers compare the two make paths as they are used, not equal work.
+ * <p>
+ * Reference results (JDK 21, single core):
+ * <ul>
+ * <li>move generation + make + unmake: make/unmake ~20M, copy-make ~18M - 20M moves per second</li>
+ * <li>perft 5 with bulk counting at the leaves: make/unmake ~155M, copy-make ~145M nodes per second</li>
+ * </ul>
+ */
+public class CopyMakeBenchmark {
+
+    private static final int POSITION_COUNT = 256;
+    private static final int ITERATIONS = 50_000;
+    private static final int WARMUP_ITERATIONS = 5_000;
+
+    private static final int PERFT_DEPTH = 5;
+    private static final int PERFT_RUNS = 3;
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    private static final BoardState[] BOARDS = new BoardState[POSITION_COUNT];
+    private static final PositionStack[] STACKS = new PositionStack[POSITION_COUNT];
+    private static final short[] MOVES = new short[MAX_MOVES];
+
+    private static final short[][] PERFT_MOVES = new short[PERFT_DEPTH + 1][MAX_MOVES];
+
+    public static void main(String[] args) {
+        System.out.println("Initializing Benchmark...");
+
+        long movesPerIteration = fillPositions();
+
+        System.out.println("Warming up JIT...");
+        long checkSum = runMakeUnmake(WARMUP_ITERATIONS) ^ runCopyMake(WARMUP_ITERATIONS);
+
+        System.out.println("Running " + ITERATIONS + " iterations of " + movesPerIteration + " moves per variant...");
+
+        System.gc();
+        long start = System.nanoTime();
+        checkSum ^= runMakeUnmake(ITERATIONS);
+        long makeUnmakeNanos = System.nanoTime() - start;
+
+        System.gc();
+        start = System.nanoTime();
+        checkSum ^= runCopyMake(ITERATIONS);
+        long copyMakeNanos = System.nanoTime() - start;
+
+        double moves = (double) ITERATIONS * movesPerIteration;
+
+        System.out.println("------------------------------------------");
+        System.out.printf("Make/unmake: %.3f s | NPS: %,d%n", makeUnmakeNanos / 1e9, (long) (moves * 1e9 / makeUnmakeNanos));
+        System.out.printf("Copy-make:   %.3f s | NPS: %,d%n", copyMakeNanos / 1e9, (long) (moves * 1e9 / copyMakeNanos));
+        System.out.println("------------------------------------------");
+
+        System.out.println("Running perft " + PERFT_DEPTH + " of Kiwipete per variant...");
+
+        BoardState board = new BoardState();
+        FenUtil.setPos(board, KIWIPETE);
+
+        PositionStack stack = new PositionStack(PERFT_DEPTH);
+        stack.set(board);
+
+        long boardNodes = 0, stackNodes = 0;
+        long boardNanos = Long.MAX_VALUE, stackNanos = Long.MAX_VALUE;
+
+        //the best of a few runs, the first ones still run partly interpreted
+        for (int run = 0; run < PERFT_RUNS; run++) {
+
+            start = System.nanoTime();
+            boardNodes = perft(board, PERFT_DEPTH);
+            boardNanos = Math.min(boardNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            stackNodes = perft(stack, PERFT_DEPTH);
+            stackNanos = Math.min(stackNanos, System.nanoTime() - start);
+        }
+
+        System.out.println("------------------------------------------");
+        System.out.printf("Make/unmake: %,d nodes | %.3f s | NPS: %,d%n", boardNodes, boardNanos / 1e9, (long) (boardNodes * 1e9 / boardNanos));
+        System.out.printf("Copy-make:   %,d nodes | %.3f s | NPS: %,d%n", stackNodes, stackNanos / 1e9, (long) (stackNodes * 1e9 / stackNanos));
+        System.out.println("------------------------------------------");
+
+        if (checkSum == 1) System.out.print("");
+    }
+
+    private static long runMakeUnmake(int iterations) {
+        long checkSum = 0;
+
+        for (int n = 0; n < iterations; n++) {
+            for (int i = 0; i < POSITION_COUNT; i++) {
+
+                BoardState board = BOARDS[i];
+                int moveCount = MoveGen.legalMoves(board, MOVES);
+
+                for (int index = 0; index < moveCount; index++) {
+                    board.makeMove(MOVES[index]);
+                    checkSum += board.getZobristHash();
+                    board.unmakeMove();
+                }
+            }
+        }
+
+        return checkSum;
+    }
+
+    private static long runCopyMake(int iterations) {
+        long checkSum = 0;
+
+        for (int n = 0; n < iterations; n++) {
+            for (int i = 0; i < POSITION_COUNT; i++) {
+
+                PositionStack stack = STACKS[i];
+                int moveCount = MoveGen.legalMoves(stack, MOVES);
+
+                for (int index = 0; index < moveCount; index++) {
+                    stack.makeMove(MOVES[index]);
+                    checkSum += stack.getZobristHash();
+                    stack.unmakeMove();
+                }
+            }
+        }
+
+        return checkSum;
+    }
+
+    private static long perft(BoardState board, int depth) {
+
+        short[] moves = PERFT_MOVES[depth];
+        int moveCount = MoveGen.legalMoves(board, moves);
+
+        if (depth == 1) return moveCount;
+
+        long nodes = 0;
+
+        for (int i = 0; i < moveCount; i++) {
+            board.makeMove(moves[i]);
+            nodes += perft(board, depth - 1);
+            board.unmakeMove();
+        }
+
+        return nodes;
+    }
+
+    private static long perft(PositionStack stack, int depth) {
+
+        short[] moves = PERFT_MOVES[depth];
+        int moveCount = MoveGen.legalMoves(stack, moves);
+
+        if (depth == 1) return moveCount;
+
+        long nodes = 0;
+
+        for (int i = 0; i < moveCount; i++) {
+            stack.makeMove(moves[i]);
+            nodes += perft(stack, depth - 1);
+            stack.unmakeMove();
+        }
+
+        return nodes;
+    }
+
+    /**
+     * Plays random legal games and keeps every position reached, in both representations.
+     *
+     * @return the total number of legal moves of all positions
+     */
+    private static long fillPositions() {
+
+        Random rng = new Random(12345);
+        short[] moves = new short[MAX_MOVES];
+        long moveTotal = 0;
+
+        BoardState game = new BoardState();
+
+        for (int i = 0; i < POSITION_COUNT; i++) {
+
+            int moveCount = MoveGen.legalMoves(game, moves);
+
+            //restart from the initial position once a game ends
+            if (moveCount == 0) {
+                game = new BoardState();
+                moveCount = MoveGen.legalMoves(game, moves);
+            }
+
+            game.makeMove(moves[rng.nextInt(moveCount)]);
+
+            //a fresh board per position keeps the two variants' working sets comparable
+            BOARDS[i] = new BoardState();
+            BOARDS[i].clear();
+            for (int square = 0; square < BOARD_SIZE; square++) {
+                if (game.pieceAt(square) != EMPTY_SQUARE) BOARDS[i].placePiece(square, game.pieceAt(square));
+            }
+            BOARDS[i].setSide(game.getSide());
+            BOARDS[i].setEnPassantTarget(game.getEnPassantTarget());
+            BOARDS[i].setCastlingRights((byte) game.castlingRights());
+            BOARDS[i].setZobristHash(game.getZobristHash());
+            BOARDS[i].setHalfMoveCounter(game.getHalfMoveCounter());
+            BOARDS[i].setFullMoveCounter(game.getFullMoveCounter());
+
+            STACKS[i] = new PositionStack(1);
+            STACKS[i].set(game);
+
+            moveTotal += MoveGen.legalMoves(game, moves);
+        }
+
+        return moveTotal;
+    }
+}
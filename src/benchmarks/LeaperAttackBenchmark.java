@@ -0,0 +1,88 @@
+package benchmarks;
+
+import java.util.Random;
+import board.Attacks;
+
+import static constants.BitboardMasks.KING_MASK;
+import static constants.BitboardMasks.KNIGHT_MASK;
+import static constants.BoardConstants.BOARD_SIZE;
+
+/**
+ * Compares the set-wise knight and king attacks in {@link Attacks} with the
+ * table-driven versions (one {@code KNIGHT_MASK} / {@code KING_MASK} load per piece).
+ * <p>
+ * Each sample holds 0-4 random knights and one king, roughly what a side has during a game.
+ */
+public class LeaperAttackBenchmark {
+
+    private static final int ITERATIONS = 500_000_000;
+    private static final int WARMUP_ITERATIONS = 20_000_000;
+    private static final int SAMPLE_SIZE = 4096;
+
+    private static final long[] KNIGHTS = new long[SAMPLE_SIZE];
+    private static final long[] KINGS = new long[SAMPLE_SIZE];
+
+    public static void main(String[] args) {
+        System.out.println("Initializing Benchmark...");
+
+        Random rng = new Random(12345);
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            int knightCount = rng.nextInt(5);
+
+            for (int n = 0; n < knightCount; n++) KNIGHTS[i] |= 1L << rng.nextInt(BOARD_SIZE);
+            KINGS[i] = 1L << rng.nextInt(BOARD_SIZE);
+        }
+
+        System.out.println("Warming up JIT...");
+        long checkSum = 0;
+        for (int variant = 0; variant < 4; variant++) checkSum ^= run(variant, WARMUP_ITERATIONS);
+
+        System.out.println("Running " + ITERATIONS + " iterations per variant...");
+
+        long[] nanos = new long[4];
+        for (int variant = 0; variant < 4; variant++) {
+            System.gc();
+            long start = System.nanoTime();
+            checkSum ^= run(variant, ITERATIONS);
+            nanos[variant] = System.nanoTime() - start;
+        }
+
+        System.out.println("------------------------------------------");
+        System.out.printf("Knights: table loop %.2f ns | set-wise %.2f ns%n", (double) nanos[0] / ITERATIONS, (double) nanos[1] / ITERATIONS);
+        System.out.printf("King:    table      %.2f ns | set-wise %.2f ns%n", (double) nanos[2] / ITERATIONS, (double) nanos[3] / ITERATIONS);
+        System.out.println("------------------------------------------");
+
+        if (checkSum == 1) System.out.print("");
+    }
+
+    private static long run(int variant, int iterations) {
+        long checkSum = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            int sample = i & (SAMPLE_SIZE - 1);
+
+            checkSum += switch (variant) {
+                case 0 -> tableKnightAtk(KNIGHTS[sample]);
+                case 1 -> Attacks.knightAtk(KNIGHTS[sample]);
+                case 2 -> KING_MASK[Long.numberOfTrailingZeros(KINGS[sample])];
+                default -> Attacks.kingAtkSetWise(KINGS[sample]);
+            };
+        }
+
+        return checkSum;
+    }
+
+    private static long tableKnightAtk(long knights) {
+        long fullAtkMask = 0;
+
+        while (knights != 0) {
+            long fromMask = (-knights) & knights;
+
+            fullAtkMask |= KNIGHT_MASK[Long.numberOfTrailingZeros(fromMask)];
+
+            knights -= fromMask;
+        }
+
+        return fullAtkMask;
+    }
+}
@@ -7,6 +7,15 @@ import board.Move;
 import static constants.BoardConstants.QUIET_MOVE;
 import static constants.BoardConstants.CAPTURE;
 
+/**
+ * Measures raw {@link BoardState#makeMove(short)} / {@link BoardState#unmakeMove()} throughput.
+ * <p>
+ * Reference results (make + unmake pairs per second, same machine and JDK):
+ * <ul>
+ * <li>six parallel history arrays: ~25.3M - 28.0M</li>
+ * <li>one {@code long[]} history record per ply: ~34.5M - 36.7M</li>
+ * </ul>
+ */
 public class NaiveBoardStateNPSTest {
 
     private static final int ITERATIONS = 1_000_000_000;
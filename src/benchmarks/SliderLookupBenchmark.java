@@ -0,0 +1,87 @@
+package benchmarks;
+
+import java.util.Random;
+import board.Attacks;
+
+import static constants.BitboardMasks.USE_PEXT;
+import static constants.BoardConstants.BOARD_SIZE;
+
+/**
+ * Compares the magic bitboard and the PEXT ({@link Long#compress(long, long)}) backends
+ * for sliding piece lookups.
+ * <p>
+ * Both backends are called directly on the same precomputed set of random squares and occupancies.
+ * The PEXT tables are only built when that backend is selected, so run with {@code -Dslider.backend=pext}.
+ */
+public class SliderLookupBenchmark {
+
+    private static final int ITERATIONS = 500_000_000;
+    private static final int WARMUP_ITERATIONS = 20_000_000;
+    private static final int SAMPLE_SIZE = 4096;
+
+    private static final int[] SQUARES = new int[SAMPLE_SIZE];
+    private static final long[] OCCUPANCIES = new long[SAMPLE_SIZE];
+
+    public static void main(String[] args) {
+        if (!USE_PEXT) {
+            System.out.println("PEXT tables not built, run with -Dslider.backend=pext");
+            return;
+        }
+
+        System.out.println("Initializing Benchmark...");
+
+        Random rng = new Random(12345);
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            SQUARES[i] = rng.nextInt(BOARD_SIZE);
+
+            //roughly a middlegame density of pieces
+            OCCUPANCIES[i] = rng.nextLong() & rng.nextLong();
+        }
+
+        System.out.println("Warming up JIT...");
+        long checkSum = runMagic(WARMUP_ITERATIONS) ^ runPext(WARMUP_ITERATIONS);
+
+        System.out.println("Running " + ITERATIONS + " iterations per backend...");
+
+        System.gc();
+        long start = System.nanoTime();
+        checkSum ^= runMagic(ITERATIONS);
+        long magicNanos = System.nanoTime() - start;
+
+        System.gc();
+        start = System.nanoTime();
+        checkSum ^= runPext(ITERATIONS);
+        long pextNanos = System.nanoTime() - start;
+
+        System.out.println("------------------------------------------");
+        System.out.printf("Magic: %.3f s | %.2f ns per bishop+rook lookup%n", magicNanos / 1e9, (double) magicNanos / ITERATIONS);
+        System.out.printf("PEXT:  %.3f s | %.2f ns per bishop+rook lookup%n", pextNanos / 1e9, (double) pextNanos / ITERATIONS);
+        System.out.println("------------------------------------------");
+
+        if (checkSum == 1) System.out.print("");
+    }
+
+    private static long runMagic(int iterations) {
+        long checkSum = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            int sample = i & (SAMPLE_SIZE - 1);
+            checkSum += Attacks.lookUpBishopMagic(SQUARES[sample], 0, OCCUPANCIES[sample])
+                    ^ Attacks.lookUpRookMagic(SQUARES[sample], 0, OCCUPANCIES[sample]);
+        }
+
+        return checkSum;
+    }
+
+    private static long runPext(int iterations) {
+        long checkSum = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            int sample = i & (SAMPLE_SIZE - 1);
+            checkSum += Attacks.lookUpBishopPext(SQUARES[sample], 0, OCCUPANCIES[sample])
+                    ^ Attacks.lookUpRookPext(SQUARES[sample], 0, OCCUPANCIES[sample]);
+        }
+
+        return checkSum;
+    }
+}
@@ -0,0 +1,116 @@
+package benchmarks;
+
+import java.util.Random;
+import board.Attacks;
+
+import static constants.BitboardMasks.*;
+import static constants.BoardConstants.BOARD_SIZE;
+
+/**
+ * Compares the flat magic attack tables with the compressed ones
+ * ({@link constants.BitboardMasks#ROOK_ATTACK_REFS} and friends).
+ * <p>
+ * Each variant runs twice: once with the tables alone in the cache, and once while also probing a large
+ * table at random (like a transposition table does during search), which keeps evicting the slider tables.
+ * The second run is where the smaller footprint is meant to pay off.
+ * The compressed tables are only built when they are selected, so run with {@code -Dslider.tables=compressed}.
+ * <p>
+ * For the effect on full move generation, run {@code tests.Perft} with {@code -Dslider.tables=flat}
+ * and {@code -Dslider.tables=compressed}; on Linux, {@code perf stat -e cache-misses} on both shows the miss rates.
+ */
+public class SliderTableBenchmark {
+
+    private static final int ITERATIONS = 200_000_000;
+    private static final int WARMUP_ITERATIONS = 20_000_000;
+    private static final int SAMPLE_SIZE = 4096;
+
+    //64 MB, far beyond any L2/L3
+    private static final int PRESSURE_SIZE = 1 << 23;
+
+    private static final int[] SQUARES = new int[SAMPLE_SIZE];
+    private static final long[] OCCUPANCIES = new long[SAMPLE_SIZE];
+    private static final long[] PRESSURE = new long[PRESSURE_SIZE];
+
+    public static void main(String[] args) {
+        if (!USE_COMPRESSED_TABLES) {
+            System.out.println("Compressed tables not built, run with -Dslider.tables=compressed");
+            return;
+        }
+
+        System.out.println("Initializing Benchmark...");
+
+        Random rng = new Random(12345);
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            SQUARES[i] = rng.nextInt(BOARD_SIZE);
+
+            //roughly a middlegame density of pieces
+            OCCUPANCIES[i] = rng.nextLong() & rng.nextLong();
+        }
+        for (int i = 0; i < PRESSURE_SIZE; i++) PRESSURE[i] = rng.nextLong();
+
+        long flatBytes = 8L * (BISHOP_MASK.length + ROOK_MASK.length);
+        long compressedBytes = 2L * (BISHOP_ATTACK_REFS.length + ROOK_ATTACK_REFS.length)
+                + 8L * (BISHOP_ATTACKS.length + ROOK_ATTACKS.length);
+
+        System.out.println("Warming up JIT...");
+        long checkSum = runFlat(WARMUP_ITERATIONS, false) ^ runCompressed(WARMUP_ITERATIONS, false)
+                ^ runFlat(WARMUP_ITERATIONS, true) ^ runCompressed(WARMUP_ITERATIONS, true);
+
+        System.out.println("Running " + ITERATIONS + " iterations per variant...");
+
+        long[] nanos = new long[4];
+        for (int variant = 0; variant < 4; variant++) {
+            boolean pressure = variant >= 2;
+
+            System.gc();
+            long start = System.nanoTime();
+            checkSum ^= ((variant & 1) == 0)? runFlat(ITERATIONS, pressure) : runCompressed(ITERATIONS, pressure);
+            nanos[variant] = System.nanoTime() - start;
+        }
+
+        System.out.println("------------------------------------------");
+        System.out.printf("Flat:       %d KB | %.2f ns per lookup | %.2f ns with cache pressure%n",
+                flatBytes / 1024, (double) nanos[0] / ITERATIONS, (double) nanos[2] / ITERATIONS);
+        System.out.printf("Compressed: %d KB | %.2f ns per lookup | %.2f ns with cache pressure%n",
+                compressedBytes / 1024, (double) nanos[1] / ITERATIONS, (double) nanos[3] / ITERATIONS);
+        System.out.println("------------------------------------------");
+
+        if (checkSum == 1) System.out.print("");
+    }
+
+    private static long runFlat(int iterations, boolean pressure) {
+        long checkSum = 0;
+        int probe = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            int sample = i & (SAMPLE_SIZE - 1);
+            checkSum += Attacks.lookUpBishopMagic(SQUARES[sample], 0, OCCUPANCIES[sample])
+                    ^ Attacks.lookUpRookMagic(SQUARES[sample], 0, OCCUPANCIES[sample]);
+
+            if (pressure) {
+                probe = (probe + 0x9E3779B) & (PRESSURE_SIZE - 1);
+                checkSum ^= PRESSURE[probe];
+            }
+        }
+
+        return checkSum;
+    }
+
+    private static long runCompressed(int iterations, boolean pressure) {
+        long checkSum = 0;
+        int probe = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            int sample = i & (SAMPLE_SIZE - 1);
+            checkSum += Attacks.lookUpBishopCompressed(SQUARES[sample], 0, OCCUPANCIES[sample])
+                    ^ Attacks.lookUpRookCompressed(SQUARES[sample], 0, OCCUPANCIES[sample]);
+
+            if (pressure) {
+                probe = (probe + 0x9E3779B) & (PRESSURE_SIZE - 1);
+                checkSum ^= PRESSURE[probe];
+            }
+        }
+
+        return checkSum;
+    }
+}
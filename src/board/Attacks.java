@@ -5,6 +5,17 @@ import static constants.BoardConstants.*;
 
 public class Attacks {
 
+    /**
+     * Piece values used by the static exchange evaluation, indexed by colored piece (e.g. {@code W_QUEEN}).
+     */
+    private static final int[] SEE_VALUE = {100, 100, 300, 300, 300, 300, 500, 500, 900, 900, 20000, 20000};
+
+    /**
+     * Upper bound on the captures in one exchange (every piece can capture on the square at most once),
+     * the minimum size of a swap list passed to {@link #see(BoardState, short, int[])}.
+     */
+    public static final int MAX_EXCHANGE = 32;
+
     //private constructor to ensure no Object creation
     private Attacks(){}
 
@@ -19,20 +30,85 @@ public class Attacks {
 
         //toggle to the opposite side to get opposite pieces
         int oppSide = 1 ^ side;
+        long oppQueens = boardState.getPieceBB(W_QUEEN + oppSide);
+
+        return isInCheck(Long.numberOfTrailingZeros(boardState.getPieceBB(W_KING + side)), side,
+                boardState.getPieceBB(W_PAWN + oppSide), boardState.getPieceBB(W_KNIGHT + oppSide),
+                boardState.getPieceBB(W_BISHOP + oppSide) | oppQueens, boardState.getPieceBB(W_ROOK + oppSide) | oppQueens,
+                boardState.getPieceBB(W_KING + oppSide), boardState.getOccupancy());
+    }
+
+    /**
+     * Raw bitboard variant of {@link #isInCheck(BoardState, int)}.
+     *
+     * @param kingSq the square of the king to check (0-63)
+     * @param side the side (color) of the king to check
+     * @param oppPawns the opponent's pawns
+     * @param oppKnights the opponent's knights
+     * @param oppBishopsQueens the opponent's bishops and queens
+     * @param oppRooksQueens the opponent's rooks and queens
+     * @param oppKing the opponent's king
+     * @param fullOcc the combined occupancy of all pieces
+     * @return {@code true} if the king is under attack, {@code false} otherwise
+     *
+     * @implNote
+     * Instead of building the opponent's full attack mask, the attacks are looked up in reverse:
+     * a piece attacks the king exactly if the same piece on the king square would attack it.
+     * Cheap leaper tests come first, so most positions never reach the slider lookups.
+     */
+    public static boolean isInCheck(int kingSq, int side, long oppPawns, long oppKnights,
+                                    long oppBishopsQueens, long oppRooksQueens, long oppKing, long fullOcc) {
+
+        if ((KNIGHT_MASK[kingSq] & oppKnights) != 0) return true;
+        if ((PAWN_MASK[side * BOARD_SIZE + kingSq] & oppPawns) != 0) return true;
+
+        //only reachable through pseudo-legal king moves, legal positions never have the kings adjacent
+        if ((KING_MASK[kingSq] & oppKing) != 0) return true;
+
+        if ((oppBishopsQueens != 0) && (lookUpBishop(kingSq, 0, fullOcc) & oppBishopsQueens) != 0) return true;
+
+        return (oppRooksQueens != 0) && (lookUpRook(kingSq, 0, fullOcc) & oppRooksQueens) != 0;
+    }
+
+    /**
+     * Calculates the combined attack mask of every piece of the specified side.
+     * <p>
+     * Squares occupied by the side's own pieces are included (they are defended),
+     * which is what king move legality needs.
+     *
+     * @param boardState the current state of the board
+     * @param side the side (color) whose attacks are calculated
+     * @param fullOcc the occupancy used for blocking sliding pieces
+     * @return a bitboard representing all squares attacked by the specified side
+     */
+    public static long allAtk(BoardState boardState, int side, long fullOcc) {
 
-        long oppOcc = boardState.getColorOccupancy(oppSide);
-        long fullOcc = boardState.getOccupancy();
+        long queens = boardState.getPieceBB(W_QUEEN + side);
 
-        long king = boardState.getPieceBB(W_KING + side);
+        return allAtk(side, boardState.getPieceBB(W_PAWN + side), boardState.getPieceBB(W_KNIGHT + side),
+                boardState.getPieceBB(W_BISHOP + side) | queens, boardState.getPieceBB(W_ROOK + side) | queens,
+                boardState.getPieceBB(W_KING + side), fullOcc);
+    }
 
-        long pawnAtkMaks = (side == WHITE)? bPawnAtk(boardState) : wPawnAtk(boardState);
+    /**
+     * Raw bitboard variant of {@link #allAtk(BoardState, int, long)}.
+     * Queens are passed as part of both slider sets.
+     *
+     * @param side the side (color) whose attacks are calculated
+     * @param pawns the side's pawns
+     * @param knights the side's knights
+     * @param bishopsQueens the side's bishops and queens
+     * @param rooksQueens the side's rooks and queens
+     * @param king the side's king
+     * @param fullOcc the occupancy used for blocking sliding pieces
+     * @return a bitboard representing all squares attacked by the specified side
+     */
+    public static long allAtk(int side, long pawns, long knights, long bishopsQueens, long rooksQueens, long king, long fullOcc) {
 
-        //the combined attackMask of the opposite pieces to see if king is in check
-        long oppAtkMask = pawnAtkMaks | knightAtk(boardState, oppSide) | bishopAtk(boardState, oppSide, oppOcc, fullOcc)
-                | rookAtk(boardState, oppSide, oppOcc, fullOcc) | queenAtk(boardState, oppSide, oppOcc, fullOcc)
-                | kingAtk(boardState, oppSide);
+        long pawnAtkMask = (side == WHITE)? wPawnAtk(pawns) : bPawnAtk(pawns);
 
-        return ((king & oppAtkMask) != 0);
+        return pawnAtkMask | knightAtk(knights) | bishopAtk(bishopsQueens, 0, fullOcc)
+                | rookAtk(rooksQueens, 0, fullOcc) | kingAtk(king);
     }
 
     /**
@@ -42,13 +118,32 @@ public class Attacks {
      * @return a bitboard representing all squares currently attacked by white pawns
      */
     public static long wPawnAtk(BoardState boardState) {
-        long pawns = boardState.getPieceBB(W_PAWN);
+        return wPawnAtk(boardState.getPieceBB(W_PAWN));
+    }
+
+    /**
+     * Raw bitboard variant of {@link #wPawnAtk(BoardState)}.
+     *
+     * @param pawns the white pawns
+     * @return a bitboard representing all squares attacked by the pawns
+     */
+    public static long wPawnAtk(long pawns) {
 
         //all pawns that are not on the A file are shifted by 7 bits to the left to calculate all valid NW attacks
         //all pawns that are not on the H file are shifted by 9 bits to the left to calculate all valid NE attacks
         return ((pawns & ~A_FILE) << 7) | ((pawns & ~H_FILE) << 9);
     }
 
+    /**
+     * Calculates all squares attacked by two white pawns.
+     *
+     * @param pawns the white pawns
+     * @return a bitboard representing all squares attacked by both a NW and a NE capture
+     */
+    public static long wPawnDoubleAtk(long pawns) {
+        return ((pawns & ~A_FILE) << 7) & ((pawns & ~H_FILE) << 9);
+    }
+
     /**
      * Calculates the combined attack mask for all black pawns on the board.
      *
@@ -56,13 +151,32 @@ public class Attacks {
      * @return a bitboard representing all squares currently attacked by black pawns
      */
     public static long bPawnAtk(BoardState boardState) {
-        long pawns = boardState.getPieceBB(B_PAWN);
+        return bPawnAtk(boardState.getPieceBB(B_PAWN));
+    }
+
+    /**
+     * Raw bitboard variant of {@link #bPawnAtk(BoardState)}.
+     *
+     * @param pawns the black pawns
+     * @return a bitboard representing all squares attacked by the pawns
+     */
+    public static long bPawnAtk(long pawns) {
 
         //all pawns that are not on the A file are shifted by 9 bits to the right to calculate all valid SW attacks
         //all pawns that are not on the H file are shifted by 7 bits to the right to calculate all valid SE attacks
         return ((pawns & ~A_FILE) >>> 9) | ((pawns & ~H_FILE) >>> 7);
     }
 
+    /**
+     * Calculates all squares attacked by two black pawns.
+     *
+     * @param pawns the black pawns
+     * @return a bitboard representing all squares attacked by both a SW and a SE capture
+     */
+    public static long bPawnDoubleAtk(long pawns) {
+        return ((pawns & ~A_FILE) >>> 9) & ((pawns & ~H_FILE) >>> 7);
+    }
+
     /**
      * Calculates the combined attack mask for all knights of the specified side.
      *
@@ -71,22 +185,62 @@ public class Attacks {
      * @return a bitboard representing all squares currently attacked by the knights
      */
     public static long knightAtk(BoardState boardState, int side) {
+        return knightAtk(boardState.getPieceBB(W_KNIGHT + side));
+    }
 
-        long knights = boardState.getPieceBB(W_KNIGHT + side);
-        long fullAtkMask = 0;
+    /**
+     * Raw bitboard variant of {@link #knightAtk(BoardState, int)}.
+     *
+     * @param knights the knights
+     * @return a bitboard representing all squares attacked by the knights
+     *
+     * @implNote
+     * Set-wise: the whole knight bitboard is shifted in all eight directions at once
+     * (the same shifts and file guards {@code KNIGHT_MASK} is built from), with no loop and no table loads.
+     */
+    public static long knightAtk(long knights) {
 
-        while (knights != 0) {
+        long notA = knights & ~A_FILE;
+        long notH = knights & ~H_FILE;
+        long notAB = knights & ~(A_FILE | B_FILE);
+        long notGH = knights & ~(G_FILE | H_FILE);
 
-            long fromMask = (-knights) & knights;
+        return (notA >>> 17) | (notA << 15) | (notH >>> 15) | (notH << 17)
+                | (notAB >>> 10) | (notAB << 6) | (notGH >>> 6) | (notGH << 10);
+    }
 
-            int from = Long.numberOfTrailingZeros(fromMask);
+    /**
+     * Calculates all squares attacked by at least two of the specified knights.
+     *
+     * @param knights the knights
+     * @return a bitboard representing all squares attacked two or more times
+     */
+    public static long knightDoubleAtk(long knights) {
 
-            fullAtkMask |= KNIGHT_MASK[from];
+        long notA = knights & ~A_FILE;
+        long notH = knights & ~H_FILE;
+        long notAB = knights & ~(A_FILE | B_FILE);
+        long notGH = knights & ~(G_FILE | H_FILE);
 
-            knights -= fromMask;
-        }
+        //each direction hits a square from a different knight, so a square hit from two directions is hit by two knights
+        long once = notA >>> 17;
+        long twice = once & (notA << 15);
+        once |= notA << 15;
 
-        return fullAtkMask;
+        twice |= once & (notH >>> 15);
+        once |= notH >>> 15;
+        twice |= once & (notH << 17);
+        once |= notH << 17;
+
+        twice |= once & (notAB >>> 10);
+        once |= notAB >>> 10;
+        twice |= once & (notAB << 6);
+        once |= notAB << 6;
+
+        twice |= once & (notGH >>> 6);
+        once |= notGH >>> 6;
+
+        return twice | (once & (notGH << 10));
     }
 
     /**
@@ -99,8 +253,19 @@ public class Attacks {
      * @return a bitboard representing all squares currently attacked by the bishops
      */
     public static long bishopAtk(BoardState boardState, int side, long myOcc, long fullOcc) {
+        return bishopAtk(boardState.getPieceBB(W_BISHOP + side), myOcc, fullOcc);
+    }
+
+    /**
+     * Raw bitboard variant of {@link #bishopAtk(BoardState, int, long, long)}.
+     *
+     * @param bishops the pieces moving diagonally (bishops, and queens if wanted)
+     * @param myOcc the occupancy of friendly pieces (used for masking)
+     * @param fullOcc the combined occupancy of all pieces (used for blocking)
+     * @return a bitboard representing all squares attacked by the pieces
+     */
+    public static long bishopAtk(long bishops, long myOcc, long fullOcc) {
 
-        long bishops = boardState.getPieceBB(W_BISHOP + side);
         long fullAtkMask = 0;
 
         while (bishops != 0) {
@@ -127,8 +292,19 @@ public class Attacks {
      * @return a bitboard representing all squares currently attacked by the rooks
      */
     public static long rookAtk(BoardState boardState, int side, long myOcc, long fullOcc) {
+        return rookAtk(boardState.getPieceBB(W_ROOK + side), myOcc, fullOcc);
+    }
+
+    /**
+     * Raw bitboard variant of {@link #rookAtk(BoardState, int, long, long)}.
+     *
+     * @param rooks the pieces moving orthogonally (rooks, and queens if wanted)
+     * @param myOcc the occupancy of friendly pieces (used for masking)
+     * @param fullOcc the combined occupancy of all pieces (used for blocking)
+     * @return a bitboard representing all squares attacked by the pieces
+     */
+    public static long rookAtk(long rooks, long myOcc, long fullOcc) {
 
-        long rooks = boardState.getPieceBB(W_ROOK + side);
         long fullAtkMask = 0;
 
         while (rooks != 0) {
@@ -155,8 +331,19 @@ public class Attacks {
      * @return a bitboard representing all squares currently attacked by the queens
      */
     public static long queenAtk(BoardState boardState, int side, long myOcc, long fullOcc) {
+        return queenAtk(boardState.getPieceBB(W_QUEEN + side), myOcc, fullOcc);
+    }
+
+    /**
+     * Raw bitboard variant of {@link #queenAtk(BoardState, int, long, long)}.
+     *
+     * @param queens the queens
+     * @param myOcc the occupancy of friendly pieces (used for masking)
+     * @param fullOcc the combined occupancy of all pieces (used for blocking)
+     * @return a bitboard representing all squares attacked by the queens
+     */
+    public static long queenAtk(long queens, long myOcc, long fullOcc) {
 
-        long queens = boardState.getPieceBB(W_QUEEN + side);
         long fullAtkMask = 0;
 
         while (queens != 0) {
@@ -183,11 +370,509 @@ public class Attacks {
      * (geometrically), ignoring friendly occupancy
      */
     public static long kingAtk(BoardState boardState, int side) {
+        return kingAtk(boardState.getPieceBB(W_KING + side));
+    }
 
-        long king = boardState.getPieceBB(W_KING + side);
-        int from = Long.numberOfTrailingZeros(king);
+    /**
+     * Raw bitboard variant of {@link #kingAtk(BoardState, int)}.
+     *
+     * @param king the king (exactly one bit set)
+     * @return a bitboard representing all squares the king attacks
+     *
+     * @implNote
+     * For a single king one {@code KING_MASK} load is cheaper than the shifts of {@link #kingAtkSetWise(long)}.
+     */
+    public static long kingAtk(long king) {
+        return KING_MASK[Long.numberOfTrailingZeros(king)];
+    }
+
+    /**
+     * Calculates all squares a king on any of the specified squares would attack,
+     * e.g. the zone around the king for evaluation, or all squares next to a set of pieces.
+     *
+     * @param squares any set of squares
+     * @return a bitboard representing all squares adjacent to at least one of the squares
+     */
+    public static long kingAtkSetWise(long squares) {
+
+        long notA = squares & ~A_FILE;
+        long notH = squares & ~H_FILE;
+
+        return (squares >>> 8) | (squares << 8)
+                | (notA >>> 9) | (notA >>> 1) | (notA << 7)
+                | (notH >>> 7) | (notH << 1) | (notH << 9);
+    }
+
+    /**
+     * Returns the squares strictly between two squares sharing a rank, file or diagonal.
+     *
+     * @param from the first square (0-63)
+     * @param to the second square (0-63)
+     * @return the bitboard of squares between {@code from} and {@code to}, or 0 if they are not aligned
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from * BOARD_SIZE + to];
+    }
+
+    /**
+     * Returns the full rank, file or diagonal through two squares, including both squares.
+     * <p>
+     * A piece pinned to its king on {@code from} by a slider on {@code to} can only move within this line.
+     *
+     * @param from the first square (0-63)
+     * @param to the second square (0-63)
+     * @return the bitboard of the line through {@code from} and {@code to}, or 0 if they are not aligned
+     */
+    public static long line(int from, int to) {
+        return LINE[from * BOARD_SIZE + to];
+    }
+
+    /**
+     * Calculates the pieces (of either side) that are the only piece between the specified square
+     * and a slider of the attacking side aimed at it.
+     * <p>
+     * For a king square, blockers of the king's side are pinned, and blockers of the attacking side
+     * can give a discovered check by moving away.
+     *
+     * @param boardState the current state of the board
+     * @param square the shielded square (0-63)
+     * @param attackerSide the side (color) of the sliders
+     * @return a bitboard of all single blockers between the square and the attacking sliders
+     */
+    public static long sliderBlockers(BoardState boardState, int square, int attackerSide) {
 
-        return KING_MASK[from];
+        long queens = boardState.getPieceBB(W_QUEEN + attackerSide);
+
+        return sliderBlockers(square, boardState.getPieceBB(W_BISHOP + attackerSide) | queens,
+                boardState.getPieceBB(W_ROOK + attackerSide) | queens, boardState.getOccupancy());
+    }
+
+    /**
+     * Raw bitboard variant of {@link #sliderBlockers(BoardState, int, int)}.
+     *
+     * @param square the shielded square (0-63)
+     * @param bishopsQueens the attacking bishops and queens
+     * @param rooksQueens the attacking rooks and queens
+     * @param occupancy all pieces on the board
+     * @return a bitboard of all single blockers between the square and the attacking sliders
+     */
+    public static long sliderBlockers(int square, long bishopsQueens, long rooksQueens, long occupancy) {
+
+        //sliders that would attack the square on an empty board
+        long snipers = (lookUpBishop(square, 0, 0) & bishopsQueens) | (lookUpRook(square, 0, 0) & rooksQueens);
+        long blockers = 0;
+
+        while (snipers != 0) {
+
+            long sniperMask = (-snipers) & snipers;
+            long blocker = BETWEEN[square * BOARD_SIZE + Long.numberOfTrailingZeros(sniperMask)] & occupancy;
+
+            if (Long.bitCount(blocker) == 1) blockers |= blocker;
+
+            snipers -= sniperMask;
+        }
+
+        return blockers;
+    }
+
+    /**
+     * Calculates the pieces of the specified side that are pinned to their own king.
+     *
+     * @param boardState the current state of the board
+     * @param side the side (color) of the king
+     * @return a bitboard of all pinned pieces of the side
+     */
+    public static long pinnedPieces(BoardState boardState, int side) {
+
+        int oppSide = 1 ^ side;
+        long oppQueens = boardState.getPieceBB(W_QUEEN + oppSide);
+
+        return pinnedPieces(Long.numberOfTrailingZeros(boardState.getPieceBB(W_KING + side)), boardState.getColorOccupancy(side),
+                boardState.getPieceBB(W_BISHOP + oppSide) | oppQueens, boardState.getPieceBB(W_ROOK + oppSide) | oppQueens,
+                boardState.getOccupancy());
+    }
+
+    /**
+     * Raw bitboard variant of {@link #pinnedPieces(BoardState, int)}.
+     *
+     * @param kingSq the square of the king (0-63)
+     * @param ownOcc the pieces of the king's side
+     * @param oppBishopsQueens the opponent's bishops and queens
+     * @param oppRooksQueens the opponent's rooks and queens
+     * @param occupancy all pieces on the board
+     * @return a bitboard of all pinned pieces of the king's side
+     */
+    public static long pinnedPieces(int kingSq, long ownOcc, long oppBishopsQueens, long oppRooksQueens, long occupancy) {
+
+        //only sliders seen from the king through the own pieces can pin, fewer than sliderBlockers looks at
+        long oppOcc = occupancy & ~ownOcc;
+        long snipers = (lookUpBishop(kingSq, 0, oppOcc) & oppBishopsQueens) | (lookUpRook(kingSq, 0, oppOcc) & oppRooksQueens);
+        long pinned = 0;
+
+        while (snipers != 0) {
+
+            long sniperMask = (-snipers) & snipers;
+            long blocker = BETWEEN[kingSq * BOARD_SIZE + Long.numberOfTrailingZeros(sniperMask)] & ownOcc;
+
+            if (Long.bitCount(blocker) == 1) pinned |= blocker;
+
+            snipers -= sniperMask;
+        }
+
+        return pinned;
+    }
+
+    /**
+     * Calculates the opponent pieces giving check to the king of the specified side.
+     * <p>
+     * Like {@link #isInCheck(int, int, long, long, long, long, long, long)}, the attacks are looked up in reverse
+     * from the king square. The opponent's king is left out, it can never give check.
+     *
+     * @param kingSq the square of the king (0-63)
+     * @param side the side (color) of the king
+     * @param oppPawns the opponent's pawns
+     * @param oppKnights the opponent's knights
+     * @param oppBishopsQueens the opponent's bishops and queens
+     * @param oppRooksQueens the opponent's rooks and queens
+     * @param occupancy all pieces on the board
+     * @return a bitboard of all checking pieces, 0 if the king is not in check
+     */
+    public static long checkers(int kingSq, int side, long oppPawns, long oppKnights,
+                                long oppBishopsQueens, long oppRooksQueens, long occupancy) {
+
+        return (PAWN_MASK[side * BOARD_SIZE + kingSq] & oppPawns)
+                | (KNIGHT_MASK[kingSq] & oppKnights)
+                | (lookUpBishop(kingSq, 0, occupancy) & oppBishopsQueens)
+                | (lookUpRook(kingSq, 0, occupancy) & oppRooksQueens);
+    }
+
+    /**
+     * Calculates the squares a king must not step on.
+     * <p>
+     * Equal to the opponent's attacks, except that sliders giving check also attack the squares
+     * behind the king, so the king cannot escape along the checking ray.
+     *
+     * @param oppAttacks every square attacked by the opponent, see {@link #allAtk(int, long, long, long, long, long, long)}
+     * @param checkers the opponent pieces giving check, see {@link #checkers(int, int, long, long, long, long, long)}
+     * @param king the king
+     * @param oppBishopsQueens the opponent's bishops and queens
+     * @param oppRooksQueens the opponent's rooks and queens
+     * @param occupancy all pieces on the board
+     * @return a bitboard of all squares unsafe for the king
+     */
+    public static long kingDanger(long oppAttacks, long checkers, long king,
+                                  long oppBishopsQueens, long oppRooksQueens, long occupancy) {
+
+        //only a sliding checker attacks through the king, so the sliders are only redone when in check by one
+        if ((checkers & (oppBishopsQueens | oppRooksQueens)) == 0) return oppAttacks;
+
+        long occWithoutKing = occupancy ^ king;
+
+        return oppAttacks | bishopAtk(oppBishopsQueens, 0, occWithoutKing) | rookAtk(oppRooksQueens, 0, occWithoutKing);
+    }
+
+    /**
+     * Calculates every piece of either side that attacks the specified square.
+     * <p>
+     * Pieces outside of {@code occupancy} are treated as removed: they neither attack nor block,
+     * which lets sliders behind them (x-rays) show up.
+     *
+     * @param boardState the current state of the board
+     * @param square the attacked square (0-63)
+     * @param occupancy the occupancy used for blocking and for filtering the attackers
+     * @return a bitboard of all white and black pieces attacking the square
+     */
+    public static long attackersTo(BoardState boardState, int square, long occupancy) {
+
+        long queens = boardState.getPieceBB(W_QUEEN) | boardState.getPieceBB(B_QUEEN);
+
+        return attackersTo(square, occupancy, boardState.getPieceBB(W_PAWN), boardState.getPieceBB(B_PAWN),
+                boardState.getPieceBB(W_KNIGHT) | boardState.getPieceBB(B_KNIGHT),
+                boardState.getPieceBB(W_BISHOP) | boardState.getPieceBB(B_BISHOP) | queens,
+                boardState.getPieceBB(W_ROOK) | boardState.getPieceBB(B_ROOK) | queens,
+                boardState.getPieceBB(W_KING) | boardState.getPieceBB(B_KING));
+    }
+
+    /**
+     * Raw bitboard variant of {@link #attackersTo(BoardState, int, long)}.
+     * All piece sets contain both colors, queens are passed as part of both slider sets.
+     *
+     * @param square the attacked square (0-63)
+     * @param occupancy the occupancy used for blocking and for filtering the attackers
+     * @param wPawns the white pawns
+     * @param bPawns the black pawns
+     * @param knights all knights
+     * @param bishopsQueens all bishops and queens
+     * @param rooksQueens all rooks and queens
+     * @param kings both kings
+     * @return a bitboard of all white and black pieces attacking the square
+     */
+    public static long attackersTo(int square, long occupancy, long wPawns, long bPawns, long knights,
+                                   long bishopsQueens, long rooksQueens, long kings) {
+
+        //a white pawn attacks the square exactly if a black pawn on the square would attack the pawn, and vice versa
+        long attackers = (PAWN_MASK[BLACK * BOARD_SIZE + square] & wPawns)
+                | (PAWN_MASK[WHITE * BOARD_SIZE + square] & bPawns)
+                | (KNIGHT_MASK[square] & knights)
+                | (KING_MASK[square] & kings)
+                | sliderAttackersTo(square, occupancy, bishopsQueens, rooksQueens);
+
+        return attackers & occupancy;
+    }
+
+    /**
+     * Static exchange evaluation: the material outcome of the capture sequence the move starts on its
+     * target square, with both sides always recapturing with their least valuable attacker
+     * and free to stop whenever continuing would lose material.
+     * <p>
+     * Pins are ignored. Castling moves evaluate to 0.
+     * <p>
+     * Allocates a fresh swap list on every call. Hot paths (move ordering, pruning) should use
+     * {@link #see(BoardState, short, int[])} with a reusable buffer, or {@link #seeGE(BoardState, short, int)}.
+     *
+     * @param boardState the current state of the board, before the move
+     * @param move the move to evaluate
+     * @return the material balance of the exchange from the moving side's point of view, in centipawns
+     */
+    public static int see(BoardState boardState, short move) {
+        return see(boardState, move, new int[MAX_EXCHANGE]);
+    }
+
+    /**
+     * Static exchange evaluation using a caller-owned swap list, see {@link #see(BoardState, short)}.
+     * <p>
+     * No allocation takes place. The buffer must hold at least {@link #MAX_EXCHANGE} entries,
+     * its content is overwritten.
+     *
+     * @param boardState the current state of the board, before the move
+     * @param move the move to evaluate
+     * @param gain the scratch buffer for the swap list
+     * @return the material balance of the exchange from the moving side's point of view, in centipawns
+     */
+    public static int see(BoardState boardState, short move, int[] gain) {
+
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        int moveType = Move.getMoveType(move);
+
+        if (moveType == KING_SIDE_CASTLE || moveType == QUEEN_SIDE_CASTLE) return 0;
+
+        int piece = boardState.pieceAt(from);
+        int side = piece & 1;
+
+        long occ = boardState.getOccupancy() ^ (1L << from);
+
+        //swap list: gain[d] is the balance if the exchange stops after capture d
+        int onSquare = piece;
+
+        if (moveType == EP_CAPTURE) {
+            occ ^= 1L << ((side == WHITE)? to - 8 : to + 8);
+            gain[0] = SEE_VALUE[W_PAWN];
+        }
+        else {
+            int captured = boardState.pieceAt(to);
+            gain[0] = (captured == EMPTY_SQUARE)? 0 : SEE_VALUE[captured];
+        }
+
+        if ((moveType & PROMOTION) != 0) {
+            onSquare = Move.getPromotedPieceBase(moveType) + side;
+            gain[0] += SEE_VALUE[onSquare] - SEE_VALUE[W_PAWN];
+        }
+
+        long queens = boardState.getPieceBB(W_QUEEN) | boardState.getPieceBB(B_QUEEN);
+        long bishopsQueens = boardState.getPieceBB(W_BISHOP) | boardState.getPieceBB(B_BISHOP) | queens;
+        long rooksQueens = boardState.getPieceBB(W_ROOK) | boardState.getPieceBB(B_ROOK) | queens;
+
+        long attackers = attackersTo(to, occ, boardState.getPieceBB(W_PAWN), boardState.getPieceBB(B_PAWN),
+                boardState.getPieceBB(W_KNIGHT) | boardState.getPieceBB(B_KNIGHT), bishopsQueens, rooksQueens,
+                boardState.getPieceBB(W_KING) | boardState.getPieceBB(B_KING));
+        int depth = 0;
+
+        while (true) {
+
+            side ^= 1;
+
+            long sideAttackers = attackers & boardState.getColorOccupancy(side);
+            if (sideAttackers == 0) break;
+
+            int attacker = leastValuableAttacker(boardState, side, sideAttackers);
+
+            //the king may only recapture on an undefended square
+            if (attacker == W_KING + side && kingRecaptureDefended(boardState, to, occ, attackers, side, bishopsQueens, rooksQueens)) break;
+
+            depth++;
+            gain[depth] = SEE_VALUE[onSquare] - gain[depth - 1];
+            onSquare = attacker;
+
+            occ ^= Long.lowestOneBit(boardState.getPieceBB(attacker) & sideAttackers);
+
+            //removing the attacker may uncover a slider behind it
+            attackers = (attackers | sliderAttackersTo(to, occ, bishopsQueens, rooksQueens)) & occ;
+        }
+
+        //negamax the swap list back, each side may stand pat instead of capturing
+        while (depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+            depth--;
+        }
+
+        return gain[0];
+    }
+
+    /**
+     * Determines whether the static exchange evaluation of a move reaches the specified threshold.
+     * <p>
+     * Equivalent to {@code see(boardState, move) >= threshold}, but without a swap list: the exchange
+     * is stopped as soon as its outcome relative to the threshold is decided, which is the common case
+     * for pruning losing captures.
+     *
+     * @param boardState the current state of the board, before the move
+     * @param move the move to evaluate
+     * @param threshold the minimum balance in centipawns
+     * @return {@code true} if the exchange gains at least {@code threshold}, {@code false} otherwise
+     */
+    public static boolean seeGE(BoardState boardState, short move, int threshold) {
+
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        int moveType = Move.getMoveType(move);
+
+        if (moveType == KING_SIDE_CASTLE || moveType == QUEEN_SIDE_CASTLE) return 0 >= threshold;
+
+        int piece = boardState.pieceAt(from);
+        int side = piece & 1;
+
+        long occ = boardState.getOccupancy() ^ (1L << from);
+
+        int swap;
+        int onSquare = piece;
+
+        if (moveType == EP_CAPTURE) {
+            occ ^= 1L << ((side == WHITE)? to - 8 : to + 8);
+            swap = SEE_VALUE[W_PAWN];
+        }
+        else {
+            int captured = boardState.pieceAt(to);
+            swap = (captured == EMPTY_SQUARE)? 0 : SEE_VALUE[captured];
+        }
+
+        if ((moveType & PROMOTION) != 0) {
+            onSquare = Move.getPromotedPieceBase(moveType) + side;
+            swap += SEE_VALUE[onSquare] - SEE_VALUE[W_PAWN];
+        }
+
+        //even if the moved piece is lost for free, the threshold is missed or still reached
+        swap -= threshold;
+        if (swap < 0) return false;
+
+        swap = SEE_VALUE[onSquare] - swap;
+        if (swap <= 0) return true;
+
+        long queens = boardState.getPieceBB(W_QUEEN) | boardState.getPieceBB(B_QUEEN);
+        long bishopsQueens = boardState.getPieceBB(W_BISHOP) | boardState.getPieceBB(B_BISHOP) | queens;
+        long rooksQueens = boardState.getPieceBB(W_ROOK) | boardState.getPieceBB(B_ROOK) | queens;
+
+        long attackers = attackersTo(to, occ, boardState.getPieceBB(W_PAWN), boardState.getPieceBB(B_PAWN),
+                boardState.getPieceBB(W_KNIGHT) | boardState.getPieceBB(B_KNIGHT), bishopsQueens, rooksQueens,
+                boardState.getPieceBB(W_KING) | boardState.getPieceBB(B_KING));
+
+        //1 while the exchange so far reaches the threshold for the moving side
+        int result = 1;
+
+        while (true) {
+
+            side ^= 1;
+
+            long sideAttackers = attackers & boardState.getColorOccupancy(side);
+            if (sideAttackers == 0) break;
+
+            result ^= 1;
+
+            int attacker = leastValuableAttacker(boardState, side, sideAttackers);
+
+            //the king may only recapture on an undefended square
+            if (attacker == W_KING + side) {
+                return kingRecaptureDefended(boardState, to, occ, attackers, side, bishopsQueens, rooksQueens)? result == 0 : result == 1;
+            }
+
+            swap = SEE_VALUE[attacker] - swap;
+            if (swap < result) break;
+
+            occ ^= Long.lowestOneBit(boardState.getPieceBB(attacker) & sideAttackers);
+            attackers = (attackers | sliderAttackersTo(to, occ, bishopsQueens, rooksQueens)) & occ;
+        }
+
+        return result == 1;
+    }
+
+    /**
+     * Determines whether the other side still attacks the square once the king of the specified side has left
+     * its own square, including sliders that were x-raying through the king.
+     */
+    private static boolean kingRecaptureDefended(BoardState boardState, int square, long occupancy, long attackers,
+                                                 int side, long bishopsQueens, long rooksQueens) {
+
+        occupancy ^= boardState.getPieceBB(W_KING + side);
+        attackers = (attackers | sliderAttackersTo(square, occupancy, bishopsQueens, rooksQueens)) & occupancy;
+
+        return (attackers & boardState.getColorOccupancy(side ^ 1)) != 0;
+    }
+
+    /**
+     * Sliders among the specified ones attacking the square under the specified occupancy.
+     * Not filtered by the occupancy itself.
+     */
+    private static long sliderAttackersTo(int square, long occupancy, long bishopsQueens, long rooksQueens) {
+        return (lookUpBishop(square, 0, occupancy) & bishopsQueens) | (lookUpRook(square, 0, occupancy) & rooksQueens);
+    }
+
+    /**
+     * Returns the least valuable piece of the side among the attackers, e.g. {@code B_KNIGHT}.
+     * The attackers must contain at least one piece of the side.
+     */
+    private static int leastValuableAttacker(BoardState boardState, int side, long sideAttackers) {
+
+        int piece = W_PAWN + side;
+
+        while ((boardState.getPieceBB(piece) & sideAttackers) == 0) piece += 2;
+
+        return piece;
+    }
+
+    /**
+     * Looks up a precomputed bitboard with bits active on all squares
+     * a bishop on the specified square can occupy within one move
+     * <p>
+     * Dispatches to the backend selected at startup ({@link constants.BitboardMasks#USE_PEXT},
+     * {@link constants.BitboardMasks#USE_COMPRESSED_TABLES}). The flags are constants, so the JIT folds the branch away.
+     *
+     * @param square the starting square (0-63)
+     * @param myOcc the occupancy of friendly pieces
+     * @param fullOcc the combined occupancy of all pieces
+     * @return a bitboard representation of all squares, which a bishop on the specified
+     * square can occupy within one move
+     */
+    public static long lookUpBishop(int square, long myOcc, long fullOcc) {
+        if (USE_PEXT) return lookUpBishopPext(square, myOcc, fullOcc);
+        return USE_COMPRESSED_TABLES? lookUpBishopCompressed(square, myOcc, fullOcc) : lookUpBishopMagic(square, myOcc, fullOcc);
+    }
+
+    /**
+     * Looks up a precomputed bitboard with bits active on all squares
+     * a rook on the specified square can occupy within one move
+     * <p>
+     * Dispatches to the backend selected at startup ({@link constants.BitboardMasks#USE_PEXT},
+     * {@link constants.BitboardMasks#USE_COMPRESSED_TABLES}).
+     *
+     * @param square the starting square (0-63)
+     * @param myOcc the occupancy of friendly pieces
+     * @param fullOcc the combined occupancy of all pieces
+     * @return a bitboard representation of all squares, which a rook on the specified
+     * square can occupy within one move
+     */
+    public static long lookUpRook(int square, long myOcc, long fullOcc) {
+        if (USE_PEXT) return lookUpRookPext(square, myOcc, fullOcc);
+        return USE_COMPRESSED_TABLES? lookUpRookCompressed(square, myOcc, fullOcc) : lookUpRookMagic(square, myOcc, fullOcc);
     }
 
     /**
@@ -206,19 +891,17 @@ public class Attacks {
      * the upper regions of the 64-bit integer. The shift ({@code >>>}) then extracts
      * the top N bits to form a compact, dense index, avoiding collisions.
      */
-    public static long lookUpBishop(int square, long myOcc, long fullOcc) {
-
-        long magic = BISHOP_MAGICS[square];
+    public static long lookUpBishopMagic(int square, long myOcc, long fullOcc) {
 
-        //bitboard of all relevant blocker squares for this bishop
-        long potBlockers = BISHOP_BLOCKER_MASK[square];
-        long blockers = potBlockers & fullOcc;
-        int shift = BOARD_SIZE - Long.bitCount(potBlockers);
+        //mask, magic, shift and offset of this square share one packed entry
+        int entry = square * MAGIC_ENTRY_SIZE;
 
-        int offset = BISHOP_MBB_OFFSETS[square];
+        //relevant blockers for this bishop
+        long blockers = BISHOP_MAGIC_ENTRIES[entry + ENTRY_MASK] & fullOcc;
 
         //Magic hashing (see @implNote)
-        int index = (int) (offset + ((blockers * magic) >>> shift));
+        int index = (int) (BISHOP_MAGIC_ENTRIES[entry + ENTRY_OFFSET]
+                + ((blockers * BISHOP_MAGIC_ENTRIES[entry + ENTRY_MAGIC]) >>> BISHOP_MAGIC_ENTRIES[entry + ENTRY_SHIFT]));
 
         return (BISHOP_MASK[index] & ~myOcc);
     }
@@ -234,22 +917,127 @@ public class Attacks {
      * square can occupy within one move
      *
      * @implNote
-     * Uses the same Magic Bitboard hashing algorithm as {@link #lookUpBishop(int, long, long)}.
+     * Uses the same Magic Bitboard hashing algorithm as {@link #lookUpBishopMagic(int, long, long)}.
      */
-    public static long lookUpRook(int square, long myOcc, long fullOcc) {
-
-        long magic = ROOK_MAGICS[square];
+    public static long lookUpRookMagic(int square, long myOcc, long fullOcc) {
 
-        //bitboard of all relevant blocker squares for this rook
-        long potBlockers = ROOK_BLOCKER_MASK[square];
-        long blockers = potBlockers & fullOcc;
-        int shift = BOARD_SIZE - Long.bitCount(potBlockers);
+        //mask, magic, shift and offset of this square share one packed entry
+        int entry = square * MAGIC_ENTRY_SIZE;
 
-        int offset = ROOK_MBB_OFFSETS[square];
+        //relevant blockers for this rook
+        long blockers = ROOK_MAGIC_ENTRIES[entry + ENTRY_MASK] & fullOcc;
 
         //Magic hashing (see @implNote)
-        int index = (int) (offset + ((blockers * magic) >>> shift));
+        int index = (int) (ROOK_MAGIC_ENTRIES[entry + ENTRY_OFFSET]
+                + ((blockers * ROOK_MAGIC_ENTRIES[entry + ENTRY_MAGIC]) >>> ROOK_MAGIC_ENTRIES[entry + ENTRY_SHIFT]));
 
         return (ROOK_MASK[index] & ~myOcc);
     }
+
+    /**
+     * Compressed table variant of {@link #lookUpBishopMagic(int, long, long)}.
+     *
+     * @param square the starting square (0-63)
+     * @param myOcc the occupancy of friendly pieces
+     * @param fullOcc the combined occupancy of all pieces
+     * @return a bitboard representation of all squares, which a bishop on the specified
+     * square can occupy within one move
+     *
+     * @implNote
+     * Same magic index, but it selects a 16-bit reference into the distinct attack sets
+     * ({@link constants.BitboardMasks#BISHOP_ATTACKS}). Costs one extra dependent load,
+     * in exchange for a much smaller cache footprint.
+     * The compressed tables are only built when {@link constants.BitboardMasks#USE_COMPRESSED_TABLES} is set.
+     *
+     * @throws IllegalStateException if the compressed tables were not selected
+     */
+    public static long lookUpBishopCompressed(int square, long myOcc, long fullOcc) {
+
+        if (!USE_COMPRESSED_TABLES) throw new IllegalStateException("compressed tables not built, run with -Dslider.tables=compressed");
+
+        int entry = square * MAGIC_ENTRY_SIZE;
+
+        long blockers = BISHOP_MAGIC_ENTRIES[entry + ENTRY_MASK] & fullOcc;
+
+        int index = (int) (BISHOP_MAGIC_ENTRIES[entry + ENTRY_OFFSET]
+                + ((blockers * BISHOP_MAGIC_ENTRIES[entry + ENTRY_MAGIC]) >>> BISHOP_MAGIC_ENTRIES[entry + ENTRY_SHIFT]));
+
+        return (BISHOP_ATTACKS[BISHOP_ATTACK_REFS[index]] & ~myOcc);
+    }
+
+    /**
+     * Compressed table variant of {@link #lookUpRookMagic(int, long, long)}.
+     *
+     * @param square the starting square (0-63)
+     * @param myOcc the occupancy of friendly pieces
+     * @param fullOcc the combined occupancy of all pieces
+     * @return a bitboard representation of all squares, which a rook on the specified
+     * square can occupy within one move
+     *
+     * @implNote
+     * Uses the same indirection as {@link #lookUpBishopCompressed(int, long, long)}.
+     *
+     * @throws IllegalStateException if the compressed tables were not selected
+     */
+    public static long lookUpRookCompressed(int square, long myOcc, long fullOcc) {
+
+        if (!USE_COMPRESSED_TABLES) throw new IllegalStateException("compressed tables not built, run with -Dslider.tables=compressed");
+
+        int entry = square * MAGIC_ENTRY_SIZE;
+
+        long blockers = ROOK_MAGIC_ENTRIES[entry + ENTRY_MASK] & fullOcc;
+
+        int index = (int) (ROOK_MAGIC_ENTRIES[entry + ENTRY_OFFSET]
+                + ((blockers * ROOK_MAGIC_ENTRIES[entry + ENTRY_MAGIC]) >>> ROOK_MAGIC_ENTRIES[entry + ENTRY_SHIFT]));
+
+        return (ROOK_ATTACKS[ROOK_ATTACK_REFS[index]] & ~myOcc);
+    }
+
+    /**
+     * PEXT variant of {@link #lookUpBishopMagic(int, long, long)}.
+     *
+     * @param square the starting square (0-63)
+     * @param myOcc the occupancy of friendly pieces
+     * @param fullOcc the combined occupancy of all pieces
+     * @return a bitboard representation of all squares, which a bishop on the specified
+     * square can occupy within one move
+     *
+     * @implNote
+     * {@link Long#compress(long, long)} packs the occupied relevant blocker squares into the low bits,
+     * which is already a dense, collision-free index. On x86 CPUs with BMI2 it compiles to one {@code PEXT}.
+     * The PEXT tables are only built when {@link constants.BitboardMasks#USE_PEXT} is set.
+     *
+     * @throws IllegalStateException if the PEXT backend was not selected
+     */
+    public static long lookUpBishopPext(int square, long myOcc, long fullOcc) {
+
+        if (!USE_PEXT) throw new IllegalStateException("PEXT tables not built, run with -Dslider.backend=pext");
+
+        int index = BISHOP_MBB_OFFSETS[square] + (int) Long.compress(fullOcc, BISHOP_BLOCKER_MASK[square]);
+
+        return (BISHOP_PEXT_MASK[index] & ~myOcc);
+    }
+
+    /**
+     * PEXT variant of {@link #lookUpRookMagic(int, long, long)}.
+     *
+     * @param square the starting square (0-63)
+     * @param myOcc the occupancy of friendly pieces
+     * @param fullOcc the combined occupancy of all pieces
+     * @return a bitboard representation of all squares, which a rook on the specified
+     * square can occupy within one move
+     *
+     * @implNote
+     * Uses the same extraction as {@link #lookUpBishopPext(int, long, long)}.
+     *
+     * @throws IllegalStateException if the PEXT backend was not selected
+     */
+    public static long lookUpRookPext(int square, long myOcc, long fullOcc) {
+
+        if (!USE_PEXT) throw new IllegalStateException("PEXT tables not built, run with -Dslider.backend=pext");
+
+        int index = ROOK_MBB_OFFSETS[square] + (int) Long.compress(fullOcc, ROOK_BLOCKER_MASK[square]);
+
+        return (ROOK_PEXT_MASK[index] & ~myOcc);
+    }
 }
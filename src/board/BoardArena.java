@@ -0,0 +1,77 @@
+package board;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+
+/**
+ * One large off-heap block of memory holding many {@link OffHeapBoardState} slots side by side.
+ * <p>
+ * The block is allocated once and freed by {@link #close()}; the GC never sees the boards in it, so millions
+ * of positions add nothing to heap size or pause times. Every slot starts on a cache line, at
+ * {@link #offsetOf(long)}. The memory is shared: a board can be handed to another thread by its index or
+ * offset alone, as long as only one thread works on a slot at a time.
+ */
+public class BoardArena implements AutoCloseable {
+
+    private final Arena arena;
+    private final MemorySegment segment;
+
+    private final long slotSize;
+    private final long boardCount;
+
+    /**
+     * Allocates room for the specified number of boards. The memory is zeroed, so load a position
+     * into a slot with {@link OffHeapBoardState#set(BoardState)} before using it.
+     *
+     * @param boardCount the number of slots
+     * @param maxPly the maximum number of moves made on top of the position loaded into a slot
+     */
+    public BoardArena(long boardCount, int maxPly) {
+        this.slotSize = OffHeapBoardState.slotSize(maxPly);
+        this.boardCount = boardCount;
+        this.arena = Arena.ofShared();
+        this.segment = arena.allocate(slotSize * boardCount, 64);
+    }
+
+    /**
+     * Creates a cursor pointing at a slot. Use {@link OffHeapBoardState#moveTo(long)} to walk
+     * many slots with a single cursor.
+     *
+     * @param index the index of the slot (0 to {@link #getBoardCount()} - 1)
+     * @return a cursor on the slot
+     */
+    public OffHeapBoardState board(long index) {
+
+        OffHeapBoardState board = new OffHeapBoardState(segment);
+        board.moveTo(offsetOf(index));
+
+        return board;
+    }
+
+    /**
+     * Gets the byte offset of a slot.
+     *
+     * @param index the index of the slot (0 to {@link #getBoardCount()} - 1)
+     * @return the offset to pass to {@link OffHeapBoardState#moveTo(long)}
+     */
+    public long offsetOf(long index) {
+        return index * slotSize;
+    }
+
+    /**
+     * Gets the number of slots of the arena.
+     *
+     * @return the board count
+     */
+    public long getBoardCount() {
+        return boardCount;
+    }
+
+    /**
+     * Frees the memory of all boards. Cursors must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        arena.close();
+    }
+}
@@ -2,7 +2,9 @@ package board;
 
 import java.util.Arrays;
 
+import static constants.BitboardMasks.*;
 import static constants.BoardConstants.*;
+import static constants.PieceSquareTables.*;
 import static constants.Zobrist.*;
 
 /**
@@ -15,7 +17,10 @@ import static constants.Zobrist.*;
  */
 public class BoardState {
 
-    private int[] pieceAt = {
+    /**
+     * Mailbox with the piece on every square, {@code EMPTY_SQUARE} if none. Piece ids fit in a byte.
+     */
+    private final byte[] pieceAt = {
 
             //RANK 1
             W_ROOK, W_KNIGHT, W_BISHOP, W_QUEEN, W_KING, W_BISHOP, W_KNIGHT, W_ROOK,
@@ -72,18 +77,75 @@ public class BoardState {
     private byte castlingRights = 0xF;
     private long zobristHash = STARTING_HASH;
 
+    /**
+     * Material + piece-square score from White's point of view, packed as in {@link constants.PieceSquareTables}.
+     * Updated incrementally alongside the hash, the starting position is balanced.
+     */
+    private int psqtScore = 0;
+    private int phase = MAX_PHASE;
+
+    /**
+     * Zobrist key of the pawns and kings only, for caching pawn structure evaluation.
+     */
+    private long pawnKey = STARTING_PAWN_KEY;
+
+    /**
+     * Piece counts, 4 bits per piece type (see {@link constants.BoardConstants#MATERIAL_KEY_UNIT}).
+     */
+    private long materialKey = STARTING_MATERIAL_KEY;
+
     private int halfMoveCounter = 0;
     private int fullMoveCounter = 1;
     private int curMove = 0;
 
-    //TODO: future optimization moving complete history into one long[]
-    //history stacks for all data needed to unmake a move
-    private final byte[] historyCastlingRights = new byte[MAX_GAME_LENGTH];
-    private final long[] historyHash = new long[MAX_GAME_LENGTH];
-    private final int[] historyCaptures = new int[MAX_GAME_LENGTH];
-    private final long[] historyEnPassant = new long[MAX_GAME_LENGTH];
-    private final short[] historyMoves = new short[MAX_GAME_LENGTH];
-    private final int[] historyHalfMoves = new int[MAX_GAME_LENGTH];
+    /**
+     * The ply right after the last null move on the history stack (0 if none).
+     * Repetition detection never looks further back.
+     */
+    private int nullMoveBarrier = 0;
+
+    /**
+     * History stack with all data needed to unmake a move, one record of {@link #HISTORY_ENTRY_SIZE} longs per ply,
+     * so make/unmake read and write one contiguous record:
+     * <ul>
+     * <li>{@link #HISTORY_HASH}: the zobrist hash before the move</li>
+     * <li>{@link #HISTORY_STATE}: bits 0-15 move, bits 16-19 captured piece + 1 (0 if none),
+     * bits 20-23 castling rights, bits 24-30 en passant square (64 if none), bits 32-47 half move counter,
+     * bits 48-63 the previous null move barrier (null move entries only)</li>
+     * <li>{@link #HISTORY_EVAL}: bits 0-31 the packed material + piece-square score, bits 32-63 the game phase</li>
+     * <li>{@link #HISTORY_PAWN_KEY}: the pawn key before the move</li>
+     * <li>{@link #HISTORY_MATERIAL_KEY}: the material key before the move</li>
+     * </ul>
+     * The stack starts with room for {@link #INITIAL_HISTORY_PLIES} plies and doubles when full,
+     * so boards of short or idle games stay small.
+     */
+    private long[] history = new long[INITIAL_HISTORY_PLIES * HISTORY_ENTRY_SIZE];
+
+    private static final int INITIAL_HISTORY_PLIES = 32;
+
+    private static final int HISTORY_ENTRY_SIZE = 5;
+    private static final int HISTORY_HASH = 0;
+    private static final int HISTORY_STATE = 1;
+    private static final int HISTORY_EVAL = 2;
+    private static final int HISTORY_PAWN_KEY = 3;
+    private static final int HISTORY_MATERIAL_KEY = 4;
+
+    //the material key counts of pawns, rooks and queens: while any is left, mate is still possible
+    private static final long PAWNS_ROOKS_QUEENS_MASK = 0xFF_FF00_00FFL;
+
+    private static final int CAPTURE_SHIFT = 16;
+    private static final int CASTLING_SHIFT = 20;
+    private static final int EN_PASSANT_SHIFT = 24;
+    private static final int HALF_MOVE_SHIFT = 32;
+    private static final int NULL_MOVE_BARRIER_SHIFT = 48;
+
+    //attack information of the current position, computed lazily at most once per position
+    //and invalidated by every change to the board
+    private boolean attackInfoValid = false;
+    private long oppAttacks;
+    private long kingDanger;
+    private long checkers;
+    private long pinned;
 
     /* ==========================================================================================
                                               make move
@@ -105,12 +167,8 @@ public class BoardState {
         int to = Move.getTo(move);
         int moveType = Move.getMoveType(move);
 
-        //current state pushed into history stack
-        historyHash[curMove] = zobristHash;
-        historyCastlingRights[curMove] = castlingRights;
-        historyHalfMoves[curMove] = halfMoveCounter;
-        historyMoves[curMove] = move;
-        historyEnPassant[curMove] = enPassantTarget;
+        //current state pushed into history stack (the captured piece is added by the capturing moves)
+        pushHistory(move);
 
         //removes side, the previous Castling Rights and the previous enPassantTarget from the Hash
         zobristHash ^= SIDE_KEY ^ CASTLING_KEYS[castlingRights] ^ EN_PASSANT_KEYS[Long.numberOfTrailingZeros(enPassantTarget)];
@@ -118,11 +176,11 @@ public class BoardState {
 
         switch (moveType) {
 
-            case QUIET_MOVE -> quietMove(from, to);
+            //one call site, so the shared code is compiled once when makeMove is inlined
+            case QUIET_MOVE, CAPTURE -> movePiece(from, to);
             case DOUBLE_PAWN_PUSH -> pawnDoubleMove(from, to);
             case KING_SIDE_CASTLE -> kingSideCastle(from, to);
             case QUEEN_SIDE_CASTLE -> queenSideCastle(from, to);
-            case CAPTURE -> capture(from, to);
             case EP_CAPTURE -> enPassantCapture(from, to);
 
             case PROMO_N, PROMO_B, PROMO_R, PROMO_Q -> promotion(from, to, moveType);
@@ -135,57 +193,60 @@ public class BoardState {
         fullMoveCounter += side;
         side = 1 ^ side;
         curMove++;
+
+        attackInfoValid = false;
     }
 
-    private void quietMove(int from, int to) {
+    //moves a piece, capturing whatever stands on the destination square
+    private void movePiece(int from, int to) {
 
         long fromMask = 1L << from;
         long toMask = 1L << to;
         long moveMask = fromMask | toMask;
 
         int movingPiece = pieceAt[from];
+        int capturedPiece = pieceAt[to];
 
         pieceAt[from] = EMPTY_SQUARE;
-        pieceAt[to] = movingPiece;
+        pieceAt[to] = (byte) movingPiece;
 
         pieceBB[movingPiece] ^= moveMask;
 
         occupancy[side] ^= moveMask;
 
-        zobristHash ^= PIECE_SQUARE_KEYS[movingPiece * BOARD_SIZE + from]
+        long moveKey = PIECE_SQUARE_KEYS[movingPiece * BOARD_SIZE + from]
                 ^ PIECE_SQUARE_KEYS[movingPiece * BOARD_SIZE + to];
 
-        historyCaptures[curMove] = EMPTY_SQUARE;
+        zobristHash ^= moveKey;
+        pawnKey ^= moveKey & PAWN_KEY_MASK[movingPiece];
+
+        psqtScore += PIECE_SQUARE_SCORES[movingPiece * BOARD_SIZE + to]
+                - PIECE_SQUARE_SCORES[movingPiece * BOARD_SIZE + from];
 
         //Reset half-move counter if pawn move, otherwise increment
         halfMoveCounter = (halfMoveCounter + 1) * HALF_MOVE_RESET_MASK[movingPiece];
-}
-
-    private void capture(int from, int to) {
 
-        int oppSide = 1 ^ side;
+        if (capturedPiece != EMPTY_SQUARE) removeCaptured(capturedPiece, to);
+    }
 
-        long fromMask = 1L << from;
-        long toMask = 1L << to;
-        long moveMask = fromMask | toMask;
+    //takes the captured piece off its square, the caller updates pieceAt
+    private void removeCaptured(int capturedPiece, int square) {
 
-        int movingPiece = pieceAt[from];
-        int capturedPiece = pieceAt[to];
+        long squareMask = 1L << square;
 
-        pieceAt[from] = EMPTY_SQUARE;
-        pieceAt[to] = movingPiece;
+        pieceBB[capturedPiece] ^= squareMask;
+        occupancy[1 ^ side] ^= squareMask;
 
-        pieceBB[movingPiece] ^= moveMask;
-        pieceBB[capturedPiece] ^= toMask;
+        long capturedKey = PIECE_SQUARE_KEYS[capturedPiece * BOARD_SIZE + square];
 
-        occupancy[side] ^= moveMask;
-        occupancy[oppSide] ^= toMask;
+        zobristHash ^= capturedKey;
+        pawnKey ^= capturedKey & PAWN_KEY_MASK[capturedPiece];
+        materialKey -= MATERIAL_KEY_UNIT[capturedPiece];
 
-        zobristHash ^= PIECE_SQUARE_KEYS[movingPiece * BOARD_SIZE + from]
-                ^ PIECE_SQUARE_KEYS[movingPiece * BOARD_SIZE + to]
-                ^ PIECE_SQUARE_KEYS[capturedPiece * BOARD_SIZE + to];
+        psqtScore -= PIECE_SQUARE_SCORES[capturedPiece * BOARD_SIZE + square];
+        phase -= PHASE_WEIGHTS[capturedPiece];
 
-        historyCaptures[curMove] = capturedPiece;
+        pushCapture(capturedPiece);
 
         halfMoveCounter = 0;
     }
@@ -200,50 +261,30 @@ public class BoardState {
         int promotionPiece = side + Move.getPromotedPieceBase(moveType);
 
         pieceAt[from] = EMPTY_SQUARE;
-        pieceAt[to] = promotionPiece;
+        pieceAt[to] = (byte) promotionPiece;
 
         pieceBB[movingPawn] ^= fromMask;
         pieceBB[promotionPiece] ^= toMask;
 
         occupancy[side] ^= moveMask;
 
-        zobristHash ^= PIECE_SQUARE_KEYS[movingPawn * BOARD_SIZE + from]
-                ^ PIECE_SQUARE_KEYS[promotionPiece * BOARD_SIZE + to];
+        long pawnFromKey = PIECE_SQUARE_KEYS[movingPawn * BOARD_SIZE + from];
+
+        zobristHash ^= pawnFromKey ^ PIECE_SQUARE_KEYS[promotionPiece * BOARD_SIZE + to];
+        pawnKey ^= pawnFromKey;
+        materialKey += MATERIAL_KEY_UNIT[promotionPiece] - MATERIAL_KEY_UNIT[movingPawn];
 
-        historyCaptures[curMove] = EMPTY_SQUARE;
+        psqtScore += PIECE_SQUARE_SCORES[promotionPiece * BOARD_SIZE + to]
+                - PIECE_SQUARE_SCORES[movingPawn * BOARD_SIZE + from];
+        phase += PHASE_WEIGHTS[promotionPiece];
 
         halfMoveCounter = 0;
     }
 
     private void promotionAndCapture(int from, int to, int moveType) {
 
-        int oppSide = 1 ^ side;
-
-        long fromMask = 1L << from;
-        long toMask = 1L << to;
-        long moveMask = fromMask | toMask;
-
-        int movingPawn = side;
-        int capturedPiece = pieceAt[to];
-        int promotionPiece = side + Move.getPromotedPieceBase(moveType);
-
-        pieceAt[from] = EMPTY_SQUARE;
-        pieceAt[to] = promotionPiece;
-
-        pieceBB[movingPawn] ^= fromMask;
-        pieceBB[capturedPiece] ^= toMask;
-        pieceBB[promotionPiece] ^= toMask;
-
-        occupancy[side] ^= moveMask;
-        occupancy[oppSide] ^= toMask;
-
-        zobristHash ^= PIECE_SQUARE_KEYS[movingPawn * BOARD_SIZE + from]
-                ^ PIECE_SQUARE_KEYS[capturedPiece * BOARD_SIZE + to]
-                ^ PIECE_SQUARE_KEYS[promotionPiece * BOARD_SIZE + to];
-
-        historyCaptures[curMove] = capturedPiece;
-
-        halfMoveCounter = 0;
+        removeCaptured(pieceAt[to], to);
+        promotion(from, to, moveType);
     }
 
     private void kingSideCastle(int from, int to) {
@@ -259,22 +300,28 @@ public class BoardState {
         int movingRook = W_ROOK + side;
 
         pieceAt[from] = EMPTY_SQUARE;
-        pieceAt[to] = movingKing;
+        pieceAt[to] = (byte) movingKing;
 
         pieceAt[rookFrom] = EMPTY_SQUARE;
-        pieceAt[rookTo] = movingRook;
+        pieceAt[rookTo] = (byte) movingRook;
 
         pieceBB[movingKing] ^= moveMaskK;
         pieceBB[movingRook] ^= moveMaskR;
 
         occupancy[side] ^= moveMaskCombined;
 
-        zobristHash ^= PIECE_SQUARE_KEYS[movingKing * BOARD_SIZE + from]
-                ^ PIECE_SQUARE_KEYS[movingKing * BOARD_SIZE + to]
+        long kingKey = PIECE_SQUARE_KEYS[movingKing * BOARD_SIZE + from]
+                ^ PIECE_SQUARE_KEYS[movingKing * BOARD_SIZE + to];
+
+        zobristHash ^= kingKey
                 ^ PIECE_SQUARE_KEYS[movingRook * BOARD_SIZE + rookFrom]
                 ^ PIECE_SQUARE_KEYS[movingRook * BOARD_SIZE + rookTo];
+        pawnKey ^= kingKey;
 
-        historyCaptures[curMove] = EMPTY_SQUARE;
+        psqtScore += PIECE_SQUARE_SCORES[movingKing * BOARD_SIZE + to]
+                - PIECE_SQUARE_SCORES[movingKing * BOARD_SIZE + from]
+                + PIECE_SQUARE_SCORES[movingRook * BOARD_SIZE + rookTo]
+                - PIECE_SQUARE_SCORES[movingRook * BOARD_SIZE + rookFrom];
 
         halfMoveCounter++;
     }
@@ -293,29 +340,35 @@ public class BoardState {
 
 
         pieceAt[from] = EMPTY_SQUARE;
-        pieceAt[to] = movingKing;
+        pieceAt[to] = (byte) movingKing;
 
         pieceAt[rookFrom] = EMPTY_SQUARE;
-        pieceAt[rookTo] = movingRook;
+        pieceAt[rookTo] = (byte) movingRook;
 
         pieceBB[movingKing] ^= moveMaskK;
         pieceBB[movingRook] ^= moveMaskR;
 
         occupancy[side] ^= moveMaskCombined;
 
-        zobristHash ^= PIECE_SQUARE_KEYS[movingKing * BOARD_SIZE + from]
-                ^ PIECE_SQUARE_KEYS[movingKing * BOARD_SIZE + to]
+        long kingKey = PIECE_SQUARE_KEYS[movingKing * BOARD_SIZE + from]
+                ^ PIECE_SQUARE_KEYS[movingKing * BOARD_SIZE + to];
+
+        zobristHash ^= kingKey
                 ^ PIECE_SQUARE_KEYS[movingRook * BOARD_SIZE + rookFrom]
                 ^ PIECE_SQUARE_KEYS[movingRook * BOARD_SIZE + rookTo];
+        pawnKey ^= kingKey;
 
-        historyCaptures[curMove] = EMPTY_SQUARE;
+        psqtScore += PIECE_SQUARE_SCORES[movingKing * BOARD_SIZE + to]
+                - PIECE_SQUARE_SCORES[movingKing * BOARD_SIZE + from]
+                + PIECE_SQUARE_SCORES[movingRook * BOARD_SIZE + rookTo]
+                - PIECE_SQUARE_SCORES[movingRook * BOARD_SIZE + rookFrom];
 
         halfMoveCounter++;
     }
 
     private void pawnDoubleMove(int from, int to) {
 
-        quietMove(from, to);
+        movePiece(from, to);
 
         switch (side) {
             case 0 -> enPassantTarget = (1L << to) >>> 8;
@@ -327,51 +380,41 @@ public class BoardState {
 
     private void enPassantCapture(int from, int to) {
 
-        int oppSide = 1 ^ side;
-
-        int captured = to;
-
-        long fromMask = 1L << from;
-        long toMask = 1L << to;
-        long moveMask = fromMask | toMask;
-        long capturedMask = toMask;
-
-        int movingPawn = side;
-        int capturedPawn = oppSide;
+        int captured = switch (side) {
+            case WHITE -> to - 8;
+            default -> to + 8;
+        };
 
-        switch (side) {
-            case WHITE -> {
-                captured = to - 8;
-                capturedMask >>>= 8;
-            }
-            case BLACK -> {
-                captured = to + 8;
-                capturedMask <<= 8;
-            }
-        }
+        movePiece(from, to);
 
-        pieceAt[from] = EMPTY_SQUARE;
-        pieceAt[to] = movingPawn;
+        removeCaptured(1 ^ side, captured);
         pieceAt[captured] = EMPTY_SQUARE;
+    }
 
-        pieceBB[movingPawn] ^= moveMask;
-        pieceBB[capturedPawn] ^= capturedMask;
+    private void updateCastlingRights(int from, int to) {
+        castlingRights &= (CASTLING_MASK_BY_SQUARE[from] & CASTLING_MASK_BY_SQUARE[to]);
+        zobristHash ^= CASTLING_KEYS[castlingRights];
+    }
 
-        occupancy[side] ^= moveMask;
-        occupancy[oppSide] ^= capturedMask;
+    private void pushHistory(short move) {
 
-        zobristHash ^= PIECE_SQUARE_KEYS[movingPawn * BOARD_SIZE + from]
-                ^ PIECE_SQUARE_KEYS[capturedPawn * BOARD_SIZE + captured]
-                ^ PIECE_SQUARE_KEYS[movingPawn * BOARD_SIZE + to];
+        int entry = curMove * HISTORY_ENTRY_SIZE;
 
-        historyCaptures[curMove] = capturedPawn;
+        if (entry == history.length) history = Arrays.copyOf(history, 2 * entry);
 
-        halfMoveCounter = 0;
+        history[entry + HISTORY_HASH] = zobristHash;
+        history[entry + HISTORY_STATE] = (move & 0xFFFFL)
+                | ((long) castlingRights << CASTLING_SHIFT)
+                | ((long) Long.numberOfTrailingZeros(enPassantTarget) << EN_PASSANT_SHIFT)
+                | ((long) halfMoveCounter << HALF_MOVE_SHIFT);
+        history[entry + HISTORY_EVAL] = (psqtScore & 0xFFFFFFFFL) | ((long) phase << 32);
+        history[entry + HISTORY_PAWN_KEY] = pawnKey;
+        history[entry + HISTORY_MATERIAL_KEY] = materialKey;
     }
 
-    private void updateCastlingRights(int from, int to) {
-        castlingRights &= (CASTLING_MASK_BY_SQUARE[from] & CASTLING_MASK_BY_SQUARE[to]);
-        zobristHash ^= CASTLING_KEYS[castlingRights];
+    //records the captured piece in the history entry of the move being made
+    private void pushCapture(int capturedPiece) {
+        history[curMove * HISTORY_ENTRY_SIZE + HISTORY_STATE] |= (long) (capturedPiece + 1) << CAPTURE_SHIFT;
     }
 
     /* ==========================================================================================
@@ -382,12 +425,16 @@ public class BoardState {
      * Restores the board state to the position before the last move was made.
      * <p>
      * This method pops the previous state (hash, castling rights, en passant target, etc.)
-     * from the history stacks and reverses the bitboard updates performed by {@code makeMove}.
+     * from the history stack and reverses the bitboard updates performed by {@code makeMove}.
      */
     public void unmakeMove() {
 
-        short move = historyMoves[--curMove];
+        int entry = --curMove * HISTORY_ENTRY_SIZE;
+        long state = history[entry + HISTORY_STATE];
+
+        short move = (short) state;
         side = 1 ^ side;
+        fullMoveCounter -= side;
 
         int from = Move.getFrom(move);
         int to = Move.getTo(move);
@@ -405,10 +452,30 @@ public class BoardState {
             case PROMO_CAP_N, PROMO_CAP_B, PROMO_CAP_R, PROMO_CAP_Q -> unmakePromotionAndCapture(from, to, moveType);
         }
 
-        zobristHash = historyHash[curMove];
-        enPassantTarget = historyEnPassant[curMove];
-        castlingRights = historyCastlingRights[curMove];
-        halfMoveCounter = historyHalfMoves[curMove];
+        restoreHistory(entry, state);
+    }
+
+    //restores hash, keys, evaluation, en passant target, castling rights and half move counter from a history entry
+    private void restoreHistory(int entry, long state) {
+
+        int enPassantSquare = (int) (state >>> EN_PASSANT_SHIFT) & 0x7F;
+        long eval = history[entry + HISTORY_EVAL];
+
+        zobristHash = history[entry + HISTORY_HASH];
+        pawnKey = history[entry + HISTORY_PAWN_KEY];
+        materialKey = history[entry + HISTORY_MATERIAL_KEY];
+        psqtScore = (int) eval;
+        phase = (int) (eval >>> 32);
+        enPassantTarget = (enPassantSquare == BOARD_SIZE)? 0 : 1L << enPassantSquare;
+        castlingRights = (byte) ((state >>> CASTLING_SHIFT) & 0xF);
+        halfMoveCounter = (int) (state >>> HALF_MOVE_SHIFT) & 0xFFFF;
+
+        attackInfoValid = false;
+    }
+
+    //the captured piece of the move being unmade (curMove already points at its history entry)
+    private int poppedCapture() {
+        return (int) (history[curMove * HISTORY_ENTRY_SIZE + HISTORY_STATE] >>> CAPTURE_SHIFT & 0xF) - 1;
     }
 
     private void unmakeQuiet(int from, int to) {
@@ -419,7 +486,7 @@ public class BoardState {
 
         int movingPiece = pieceAt[to];
 
-        pieceAt[from] = movingPiece;
+        pieceAt[from] = (byte) movingPiece;
         pieceAt[to] = EMPTY_SQUARE;
 
         pieceBB[movingPiece] ^= moveMask;
@@ -439,10 +506,10 @@ public class BoardState {
         int movingKing = W_KING + side;
         int movingRook = W_ROOK + side;
 
-        pieceAt[from] = movingKing;
+        pieceAt[from] = (byte) movingKing;
         pieceAt[to] = EMPTY_SQUARE;
 
-        pieceAt[rookFrom] = movingRook;
+        pieceAt[rookFrom] = (byte) movingRook;
         pieceAt[rookTo] = EMPTY_SQUARE;
 
         pieceBB[movingKing] ^= moveMaskK;
@@ -463,13 +530,13 @@ public class BoardState {
         int movingKing = W_KING + side;
         int movingRook = W_ROOK + side;
 
-        pieceAt[from] = movingKing;
+        pieceAt[from] = (byte) movingKing;
         pieceAt[to] = EMPTY_SQUARE;
 
         pieceBB[movingKing] ^= moveMaskK;
         pieceBB[movingRook] ^= moveMaskR;
 
-        pieceAt[rookFrom] = movingRook;
+        pieceAt[rookFrom] = (byte) movingRook;
         pieceAt[rookTo] = EMPTY_SQUARE;
 
         occupancy[side] ^= moveMaskCombined;
@@ -484,10 +551,10 @@ public class BoardState {
         long moveMask = fromMask | toMask;
 
         int movingPiece = pieceAt[to];
-        int capturedPiece = historyCaptures[curMove];
+        int capturedPiece = poppedCapture();
 
-        pieceAt[from] = movingPiece;
-        pieceAt[to] = capturedPiece;
+        pieceAt[from] = (byte) movingPiece;
+        pieceAt[to] = (byte) capturedPiece;
 
         pieceBB[movingPiece] ^= moveMask;
         pieceBB[capturedPiece] ^= toMask;
@@ -521,9 +588,9 @@ public class BoardState {
             }
         }
 
-        pieceAt[from] = movingPawn;
+        pieceAt[from] = (byte) movingPawn;
         pieceAt[to] = EMPTY_SQUARE;
-        pieceAt[captured] = 1 ^ movingPawn;
+        pieceAt[captured] = (byte) (1 ^ movingPawn);
 
         pieceBB[movingPawn] ^= moveMask;
         pieceBB[capturedPawn] ^= capturedMask;
@@ -541,7 +608,7 @@ public class BoardState {
         int movingPawn = side;
         int promotedPiece = side + Move.getPromotedPieceBase(moveType);
 
-        pieceAt[from] = movingPawn;
+        pieceAt[from] = (byte) movingPawn;
         pieceAt[to] = EMPTY_SQUARE;
 
         pieceBB[promotedPiece] ^= toMask;
@@ -560,10 +627,10 @@ public class BoardState {
 
         int movingPawn = side;
         int promotedPiece = side + Move.getPromotedPieceBase(moveType);
-        int capturedPiece = historyCaptures[curMove];
+        int capturedPiece = poppedCapture();
 
-        pieceAt[from] = movingPawn;
-        pieceAt[to] = capturedPiece;
+        pieceAt[from] = (byte) movingPawn;
+        pieceAt[to] = (byte) capturedPiece;
 
         pieceBB[movingPawn] ^= fromMask;
         pieceBB[capturedPiece] ^= toMask;
@@ -573,6 +640,248 @@ public class BoardState {
         occupancy[oppSide] ^= toMask;
     }
 
+    /* ==========================================================================================
+                                              null move
+     ========================================================================================== */
+
+    /**
+     * Passes the turn to the opponent without moving a piece, for null move pruning.
+     * <p>
+     * Only the side, the en passant target and the hash change, no piece or bitboard is touched.
+     * A {@link constants.BoardConstants#NULL_MOVE} entry is pushed onto the history stack and marks a
+     * repetition barrier, so repetition detection never looks past the null move: a repetition through
+     * a passed turn is not a real one. The half move counter keeps counting, the fifty move rule still applies.
+     * Must be undone with {@link #unmakeNullMove()}.
+     */
+    public void makeNullMove() {
+
+        pushHistory(NULL_MOVE);
+
+        //the entry keeps the barrier it replaces, so unmaking the null move restores it at once
+        history[curMove * HISTORY_ENTRY_SIZE + HISTORY_STATE] |= (long) nullMoveBarrier << NULL_MOVE_BARRIER_SHIFT;
+
+        //removes the previous enPassantTarget from the Hash and passes the turn
+        zobristHash ^= SIDE_KEY ^ EN_PASSANT_KEYS[Long.numberOfTrailingZeros(enPassantTarget)];
+        enPassantTarget = 0;
+
+        //a passed turn counts towards the fifty move rule like any other reversible move
+        halfMoveCounter++;
+
+        fullMoveCounter += side;
+        side = 1 ^ side;
+        curMove++;
+
+        //the repetition barrier: no earlier position is searched for repetitions
+        nullMoveBarrier = curMove;
+
+        attackInfoValid = false;
+    }
+
+    /**
+     * Restores the board state to the position before the last {@link #makeNullMove()}.
+     */
+    public void unmakeNullMove() {
+
+        int entry = --curMove * HISTORY_ENTRY_SIZE;
+
+        side = 1 ^ side;
+        fullMoveCounter -= side;
+
+        long state = history[entry + HISTORY_STATE];
+
+        restoreHistory(entry, state);
+        nullMoveBarrier = (int) (state >>> NULL_MOVE_BARRIER_SHIFT);
+    }
+
+    /* ==========================================================================================
+                                            draw detection
+     ========================================================================================== */
+
+    /**
+     * Checks whether the current position occurred before.
+     * <p>
+     * Only the positions since the last irreversible move (capture or pawn move) can be equal, and none before
+     * a null move counts, so the scan is bounded by the half move counter and the last null move and only
+     * looks at every second entry
+     * (same side to move). No allocation, usually a handful of comparisons.
+     *
+     * @return {@code true} if the zobrist hash of the current position is found earlier in the history
+     */
+    public boolean isRepetition() {
+
+        int window = Math.min(halfMoveCounter, curMove - nullMoveBarrier);
+
+        //a position cannot repeat after 2 plies: both sides would have to pass
+        for (int distance = 4; distance <= window; distance += 2) {
+            if (history[(curMove - distance) * HISTORY_ENTRY_SIZE + HISTORY_HASH] == zobristHash) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks whether the current position is a draw by repetition, the fifty move rule or insufficient material.
+     * <p>
+     * A position repeated inside the search tree counts as a draw at once: if the repetition was good for
+     * one side, it would not have allowed it. A position from before the search root has to occur twice
+     * more (threefold repetition).
+     * <p>
+     * <b>Note:</b> checkmate takes precedence over the fifty move rule, which this method does not check.
+     *
+     * @param ply the distance of the current position from the search root
+     * @return {@code true} if the position is a draw
+     */
+    public boolean isDraw(int ply) {
+
+        if (halfMoveCounter >= 100 || isInsufficientMaterial()) return true;
+
+        int window = Math.min(halfMoveCounter, curMove - nullMoveBarrier);
+        boolean repeatedBeforeRoot = false;
+
+        for (int distance = 4; distance <= window; distance += 2) {
+
+            if (history[(curMove - distance) * HISTORY_ENTRY_SIZE + HISTORY_HASH] != zobristHash) continue;
+
+            if (distance < ply || repeatedBeforeRoot) return true;
+            repeatedBeforeRoot = true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks whether neither side has enough material left to mate: bare kings, a single minor piece,
+     * or only bishops that all stand on squares of the same colour.
+     *
+     * @return {@code true} if no sequence of legal moves can lead to mate
+     */
+    public boolean isInsufficientMaterial() {
+
+        if ((materialKey & PAWNS_ROOKS_QUEENS_MASK) != 0) return false;
+
+        long bishops = pieceBB[W_BISHOP] | pieceBB[B_BISHOP];
+        long minors = bishops | pieceBB[W_KNIGHT] | pieceBB[B_KNIGHT];
+
+        if (Long.bitCount(minors) <= 1) return true;
+
+        return minors == bishops && ((bishops & LIGHT_SQUARES) == 0 || (bishops & DARK_SQUARES) == 0);
+    }
+
+    /* ==========================================================================================
+                                            packed encoding
+     ========================================================================================== */
+
+    /**
+     * Writes the position as a {@link PackedPosition}: {@link PackedPosition#SIZE} longs, no FEN involved.
+     * The history is not part of it, so a decoded board starts a new game at the same position.
+     *
+     * @param dst the array to write to
+     * @param off the index of the first long to write
+     */
+    public void encodeTo(long[] dst, int off) {
+
+        long occupied = occupancy[WHITE] | occupancy[BLACK];
+        long codes = 0L;
+        int index = 0;
+
+        dst[off] = occupied;
+
+        //plain piece ids, 16 per long
+        for (long squares = occupied; squares != 0; squares &= squares - 1) {
+
+            codes |= (long) pieceAt[Long.numberOfTrailingZeros(squares)] << ((index & 15) << 2);
+
+            if ((++index & 15) == 0) {
+                dst[off + (index >>> 4)] = codes;
+                codes = 0L;
+            }
+        }
+
+        if (index < 32) dst[off + 1 + (index >>> 4)] = codes;
+        if (index < 16) dst[off + 2] = 0L;
+
+        dst[off + 3] = (halfMoveCounter & 0xFFFFL) | ((long) fullMoveCounter << 16);
+
+        //the rest of the state replaces the codes of the pieces it belongs to
+        if (enPassantTarget != 0) {
+            recode(dst, off, occupied, Long.numberOfTrailingZeros(enPassantTarget) ^ 8, PackedPosition.EN_PASSANT_PAWN);
+        }
+
+        if ((castlingRights & 0b0010) != 0 && pieceAt[H1] == W_ROOK) recode(dst, off, occupied, H1, PackedPosition.CASTLING_WHITE_ROOK);
+        if ((castlingRights & 0b0001) != 0 && pieceAt[A1] == W_ROOK) recode(dst, off, occupied, A1, PackedPosition.CASTLING_WHITE_ROOK);
+        if ((castlingRights & 0b1000) != 0 && pieceAt[H8] == B_ROOK) recode(dst, off, occupied, H8, PackedPosition.CASTLING_BLACK_ROOK);
+        if ((castlingRights & 0b0100) != 0 && pieceAt[A8] == B_ROOK) recode(dst, off, occupied, A8, PackedPosition.CASTLING_BLACK_ROOK);
+
+        if (side == BLACK) recode(dst, off, occupied, Long.numberOfTrailingZeros(pieceBB[B_KING]), PackedPosition.BLACK_KING_TO_MOVE);
+    }
+
+    //swaps the piece id of an occupied square for a special code
+    private void recode(long[] dst, int off, long occupied, int square, int code) {
+
+        int index = Long.bitCount(occupied & ((1L << square) - 1));
+
+        dst[off + 1 + (index >>> 4)] ^= (long) (pieceAt[square] ^ code) << ((index & 15) << 2);
+    }
+
+    /**
+     * Replaces the whole board with a {@link PackedPosition}, as written by {@link #encodeTo(long[], int)}.
+     * Hash, keys and evaluation are rebuilt from scratch and the history is cleared.
+     *
+     * @param src the array to read from
+     * @param off the index of the first long to read
+     */
+    public void decodeFrom(long[] src, int off) {
+
+        clear();
+
+        int newSide = WHITE;
+        int newCastlingRights = 0;
+        long newEnPassantTarget = 0L;
+        int index = 0;
+
+        for (long squares = src[off]; squares != 0; squares &= squares - 1, index++) {
+
+            int square = Long.numberOfTrailingZeros(squares);
+            int code = (int) (src[off + 1 + (index >>> 4)] >>> ((index & 15) << 2)) & 0xF;
+
+            switch (code) {
+                case PackedPosition.EN_PASSANT_PAWN -> {
+                    code = (square < A5)? W_PAWN : B_PAWN;
+                    newEnPassantTarget = 1L << (square ^ 8);
+                }
+                case PackedPosition.CASTLING_WHITE_ROOK -> {
+                    code = W_ROOK;
+                    newCastlingRights |= (square == H1)? 0b0010 : 0b0001;
+                }
+                case PackedPosition.CASTLING_BLACK_ROOK -> {
+                    code = B_ROOK;
+                    newCastlingRights |= (square == H8)? 0b1000 : 0b0100;
+                }
+                case PackedPosition.BLACK_KING_TO_MOVE -> {
+                    code = B_KING;
+                    newSide = BLACK;
+                }
+            }
+
+            placePiece(square, code);
+        }
+
+        side = newSide;
+        if (newSide == BLACK) zobristHash ^= SIDE_KEY;
+
+        castlingRights = (byte) newCastlingRights;
+        zobristHash ^= CASTLING_KEYS[newCastlingRights];
+
+        if (newEnPassantTarget != 0) {
+            enPassantTarget = newEnPassantTarget;
+            zobristHash ^= EN_PASSANT_KEYS[Long.numberOfTrailingZeros(newEnPassantTarget)];
+        }
+
+        long counters = src[off + 3];
+        halfMoveCounter = (int) (counters & 0xFFFF);
+        fullMoveCounter = (int) (counters >>> 16);
+    }
+
     /* ==========================================================================================
                                             state getters
      ========================================================================================== */
@@ -643,6 +952,194 @@ public class BoardState {
         return castlingRights;
     }
 
+    /**
+     * Retrieves the zobrist hash of the current position.
+     *
+     * @return the 64-bit zobrist hash
+     */
+    public long getZobristHash() {
+        return zobristHash;
+    }
+
+    /**
+     * Gets the number of moves made on this board since it was set up.
+     *
+     * @return the current ply, the number of entries on the history stack
+     */
+    public int getPly() {
+        return curMove;
+    }
+
+    /**
+     * Retrieves a move from the history stack.
+     *
+     * @param ply the ply the move was made at, from 0 to {@link #getPly()} - 1
+     * @return the 16-bit encoded move (see {@link Move}), {@code NULL_MOVE} for a passed turn
+     */
+    public short getMove(int ply) {
+        return (short) history[ply * HISTORY_ENTRY_SIZE + HISTORY_STATE];
+    }
+
+    /**
+     * Retrieves the zobrist key of the pawns and kings of the current position.
+     * <p>
+     * Positions with the same pawn structure and king squares share this key, so it can index a pawn hash table.
+     *
+     * @return the 64-bit pawn key
+     */
+    public long getPawnKey() {
+        return pawnKey;
+    }
+
+    /**
+     * Retrieves the material key of the current position.
+     * <p>
+     * The key is made of the piece counts, 4 bits per piece type: the count of piece {@code p} (e.g. {@code B_ROOK})
+     * is {@code (key >>> 4 * p) & 0xF}. Equal material means equal keys, so an endgame is recognised by a single
+     * comparison, e.g. {@code MATERIAL_KEY_UNIT[W_ROOK]} for KR vs K.
+     *
+     * @return the material key
+     */
+    public long getMaterialKey() {
+        return materialKey;
+    }
+
+    /**
+     * Retrieves the number of half moves since the last capture or pawn move.
+     *
+     * @return the half move counter
+     */
+    public int getHalfMoveCounter() {
+        return halfMoveCounter;
+    }
+
+    /**
+     * Retrieves the number of the current full move, starting at 1 and incremented after every black move.
+     *
+     * @return the full move counter
+     */
+    public int getFullMoveCounter() {
+        return fullMoveCounter;
+    }
+
+    /* ==========================================================================================
+                                              evaluation
+     ========================================================================================== */
+
+    /**
+     * Retrieves the midgame material + piece-square score, kept up to date by make/unmake.
+     *
+     * @return the midgame score from White's point of view
+     */
+    public int getMidgameScore() {
+        return midgame(psqtScore);
+    }
+
+    /**
+     * Retrieves the endgame material + piece-square score, kept up to date by make/unmake.
+     *
+     * @return the endgame score from White's point of view
+     */
+    public int getEndgameScore() {
+        return endgame(psqtScore);
+    }
+
+    /**
+     * Retrieves the game phase: the sum of the {@link constants.PieceSquareTables#PHASE_WEIGHTS} of all pieces.
+     *
+     * @return the game phase, {@link constants.PieceSquareTables#MAX_PHASE} in the starting position
+     */
+    public int getPhase() {
+        return phase;
+    }
+
+    /**
+     * Blends the midgame and endgame scores by the game phase. O(1): no bitboard is looked at.
+     *
+     * @return the tapered material + piece-square score from the point of view of the side to move
+     */
+    public int getTaperedScore() {
+
+        //promotions can push the phase past the starting value
+        int midgameWeight = Math.min(phase, MAX_PHASE);
+
+        int score = (midgame(psqtScore) * midgameWeight + endgame(psqtScore) * (MAX_PHASE - midgameWeight)) / MAX_PHASE;
+
+        return (side == WHITE)? score : -score;
+    }
+
+    /* ==========================================================================================
+                                             attack info
+     ========================================================================================== */
+
+    /**
+     * Retrieves every square attacked by the opponent of the side to move.
+     * <p>
+     * Computed lazily together with the rest of the attack information, at most once per position.
+     *
+     * @return a bitboard of all squares attacked (or defended) by the opponent
+     */
+    public long getOppAttacks() {
+        if (!attackInfoValid) computeAttackInfo();
+        return oppAttacks;
+    }
+
+    /**
+     * Retrieves the squares the king of the side to move must not step on.
+     * <p>
+     * Equal to {@link #getOppAttacks()}, except that sliders giving check also attack the squares
+     * behind the king, so the king cannot escape along the checking ray.
+     *
+     * @return a bitboard of all squares unsafe for the king of the side to move
+     */
+    public long getKingDanger() {
+        if (!attackInfoValid) computeAttackInfo();
+        return kingDanger;
+    }
+
+    /**
+     * Retrieves the opponent pieces currently giving check to the side to move.
+     *
+     * @return a bitboard of all checking pieces, 0 if the side to move is not in check
+     */
+    public long getCheckers() {
+        if (!attackInfoValid) computeAttackInfo();
+        return checkers;
+    }
+
+    /**
+     * Retrieves the pieces of the side to move that are absolutely pinned to their king.
+     *
+     * @return a bitboard of all pinned pieces
+     */
+    public long getPinned() {
+        if (!attackInfoValid) computeAttackInfo();
+        return pinned;
+    }
+
+    private void computeAttackInfo() {
+
+        int oppSide = 1 ^ side;
+
+        long myOcc = occupancy[side];
+        long fullOcc = myOcc | occupancy[oppSide];
+
+        long king = pieceBB[W_KING + side];
+        int kingSq = Long.numberOfTrailingZeros(king);
+
+        long oppPawns = pieceBB[W_PAWN + oppSide];
+        long oppKnights = pieceBB[W_KNIGHT + oppSide];
+        long oppBishopsQueens = pieceBB[W_BISHOP + oppSide] | pieceBB[W_QUEEN + oppSide];
+        long oppRooksQueens = pieceBB[W_ROOK + oppSide] | pieceBB[W_QUEEN + oppSide];
+
+        oppAttacks = Attacks.allAtk(oppSide, oppPawns, oppKnights, oppBishopsQueens, oppRooksQueens, pieceBB[W_KING + oppSide], fullOcc);
+        checkers = Attacks.checkers(kingSq, side, oppPawns, oppKnights, oppBishopsQueens, oppRooksQueens, fullOcc);
+        kingDanger = Attacks.kingDanger(oppAttacks, checkers, king, oppBishopsQueens, oppRooksQueens, fullOcc);
+        pinned = Attacks.pinnedPieces(kingSq, myOcc, oppBishopsQueens, oppRooksQueens, fullOcc);
+
+        attackInfoValid = true;
+    }
+
     /* ==========================================================================================
                                             state setters
      ========================================================================================== */
@@ -650,11 +1147,12 @@ public class BoardState {
     /**
      * Resets the board to a completely empty state.
      * <p>
-     * Clears all bitboards, occupancy masks, history stacks, and counters. <br>
+     * Clears all bitboards, occupancy masks, the history stack, and counters. <br>
      * <b>Note:</b> This does not set up the starting chess position; it creates a void board.
      */
     public void clear() {
-        Arrays.fill(pieceAt, EMPTY_SQUARE);
+        attackInfoValid = false;
+        Arrays.fill(pieceAt, (byte) EMPTY_SQUARE);
         Arrays.fill(pieceBB, 0L);
         Arrays.fill(occupancy, 0L);
 
@@ -662,11 +1160,16 @@ public class BoardState {
         enPassantTarget = 0L;
         castlingRights = 0;
         zobristHash = 0L;
+        psqtScore = 0;
+        phase = 0;
+        pawnKey = 0L;
+        materialKey = 0L;
 
         // Reset Move Counters
         halfMoveCounter = 0;
         fullMoveCounter = 1;
         curMove = 0;
+        nullMoveBarrier = 0;
     }
 
     /**
@@ -679,7 +1182,32 @@ public class BoardState {
      * @param piece the piece identifier
      */
     public void setPieceAt(int square, int piece) {
-        pieceAt[square] = piece;
+        pieceAt[square] = (byte) piece;
+    }
+
+    /**
+     * Puts a piece on an empty square and updates everything derived from it:
+     * mailbox, bitboards, occupancy, hash, pawn and material keys and the evaluation.
+     *
+     * @param square the square index (0-63)
+     * @param piece the piece identifier
+     */
+    public void placePiece(int square, int piece) {
+
+        long mask = 1L << square;
+        long zobristMask = PIECE_SQUARE_KEYS[piece * BOARD_SIZE + square];
+
+        pieceAt[square] = (byte) piece;
+        pieceBB[piece] ^= mask;
+        occupancy[piece & 1] ^= mask;
+
+        zobristHash ^= zobristMask;
+        pawnKey ^= zobristMask & PAWN_KEY_MASK[piece];
+        materialKey += MATERIAL_KEY_UNIT[piece];
+
+        addPieceScore(piece, square);
+
+        attackInfoValid = false;
     }
 
     /**
@@ -691,6 +1219,7 @@ public class BoardState {
      * @param bbMask the mask of bits to toggle
      */
     public void updatePieceBB(int piece, long bbMask) {
+        attackInfoValid = false;
         pieceBB[piece] ^= bbMask;
     }
 
@@ -701,6 +1230,7 @@ public class BoardState {
      * @param newPieceBB the new bitboard configuration
      */
     public void setPieceBB(int piece, long newPieceBB){
+        attackInfoValid = false;
         pieceBB[piece] = newPieceBB;
     }
 
@@ -713,6 +1243,7 @@ public class BoardState {
      * @param mask the mask of bits to toggle
      */
     public void updateOccupancy(int side, long mask) {
+        attackInfoValid = false;
         occupancy[side] ^= mask;
     }
 
@@ -723,6 +1254,7 @@ public class BoardState {
      * @param newOccupancy the new occupancy bitboard configuration
      */
     public void setOccupancy(int side, long newOccupancy) {
+        attackInfoValid = false;
         occupancy[side] = newOccupancy;
     }
 
@@ -732,6 +1264,7 @@ public class BoardState {
      * @param newSide the new side ({@code WHITE} or {@code BLACK})
      */
     public void setSide(int newSide) {
+        attackInfoValid = false;
         side = newSide;
     }
 
@@ -772,6 +1305,20 @@ public class BoardState {
         zobristHash = newZobristHash;
     }
 
+    /**
+     * Adds the material, piece-square and phase values of a piece placed on a square.
+     * <p>
+     * Like {@link #updateZobristHash(long)}, this is for building positions piece by piece,
+     * {@code makeMove} keeps the values up to date on its own.
+     *
+     * @param piece the piece identifier
+     * @param square the square index (0-63)
+     */
+    public void addPieceScore(int piece, int square) {
+        psqtScore += PIECE_SQUARE_SCORES[piece * BOARD_SIZE + square];
+        phase += PHASE_WEIGHTS[piece];
+    }
+
     /**
      * Sets the half-move counter used for the 50-move rule.
      *
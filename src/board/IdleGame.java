@@ -0,0 +1,93 @@
+package board;
+
+/**
+ * Compact form of a game nobody is moving in, for hosting many concurrent games.
+ * <p>
+ * Instead of a full {@link BoardState}, an idle game keeps only what is needed to rebuild one:
+ * <ul>
+ * <li>the position at the start of the reversible window: after the last capture, pawn move or the setup,
+ * as a 32-byte {@link PackedPosition}</li>
+ * <li>the moves played since then, in order</li>
+ * </ul>
+ * Earlier positions can never repeat, so replaying the window restores everything the board needs,
+ * including repetition detection. An idle game takes roughly 90 bytes plus 2 per ply of the window.
+ * <p>
+ * The window is as long as the half move counter, which the board never caps: a fifty move draw has to be
+ * claimed, so a game may go on past it. Only a server enforcing the 75 move rule bounds the window,
+ * to 150 plies (about 390 bytes).
+ * <p>
+ * Instances are immutable. {@link #restoreTo(BoardState)} rebuilds into an existing board, so a server only
+ * needs as many full boards (and grown history stacks) as it has games being played at the same time.
+ */
+public class IdleGame {
+
+    /**
+     * The position at the start of the window, as a {@link PackedPosition}.
+     */
+    private final long[] root;
+    private final short[] moves;
+
+    private IdleGame(long[] root, short[] moves) {
+        this.root = root;
+        this.moves = moves;
+    }
+
+    /**
+     * Creates the idle form of a board. The board is left unchanged and can be released afterwards.
+     *
+     * @param boardState the game to store, must not contain null moves
+     * @return the compact form of the game
+     */
+    public static IdleGame of(BoardState boardState) {
+
+        int window = Math.min(boardState.getHalfMoveCounter(), boardState.getPly());
+        int firstPly = boardState.getPly() - window;
+
+        short[] moves = new short[window];
+        for (int i = 0; i < window; i++) moves[i] = boardState.getMove(firstPly + i);
+
+        //steps back to the start of the window to store that position, then returns to the current one
+        for (int i = 0; i < window; i++) boardState.unmakeMove();
+
+        long[] root = new long[PackedPosition.SIZE];
+        boardState.encodeTo(root, 0);
+
+        for (short move : moves) boardState.makeMove(move);
+
+        return new IdleGame(root, moves);
+    }
+
+    /**
+     * Rebuilds the game into a new board.
+     *
+     * @return a board in the stored position
+     */
+    public BoardState rehydrate() {
+
+        BoardState boardState = new BoardState();
+        restoreTo(boardState);
+
+        return boardState;
+    }
+
+    /**
+     * Rebuilds the game into an existing board, e.g. one taken from a pool. Its previous content is discarded.
+     *
+     * @param boardState the board to overwrite
+     */
+    public void restoreTo(BoardState boardState) {
+
+        boardState.decodeFrom(root, 0);
+
+        for (short move : moves) boardState.makeMove(move);
+    }
+
+    /**
+     * Gets the number of moves replayed on rehydration.
+     *
+     * @return the length of the reversible window
+     */
+    public int getMoveCount() {
+        return moves.length;
+    }
+}
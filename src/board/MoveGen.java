@@ -5,17 +5,39 @@ import static constants.BitboardMasks.*;
 import static board.Attacks.lookUpBishop;
 import static board.Attacks.lookUpRook;
 
-import java.util.Arrays;
-
 public class MoveGen {
 
     private MoveGen() {}
 
-    //TODO: refactor such, that object creation is avoided: short[] -> void?
+    /**
+     * Generates all pseudo-legal moves for the side to move.
+     * <p>
+     * Allocates a fresh buffer on every call and terminates the list with {@code -1}.
+     * Hot paths (search, perft) should use {@link #moves(BoardState, short[])} with a reusable buffer instead.
+     *
+     * @param boardState the current state of the board
+     * @return a new array of encoded moves, terminated by {@code -1}
+     */
     public static short[] moves(BoardState boardState) {
 
         short[] moves = new short[MAX_MOVES];
-        Arrays.fill(moves, (short) -1);
+        int count = moves(boardState, moves);
+        moves[count] = -1;
+
+        return moves;
+    }
+
+    /**
+     * Generates all pseudo-legal moves for the side to move into a caller-owned buffer.
+     * <p>
+     * No allocation takes place and the buffer is not cleared, only the first {@code count}
+     * entries are valid after the call. The buffer must hold at least {@code MAX_MOVES} entries.
+     *
+     * @param boardState the current state of the board
+     * @param moves the buffer the encoded moves are written to (starting at index 0)
+     * @return the number of moves written to {@code moves}
+     */
+    public static int moves(BoardState boardState, short[] moves) {
 
         int side = boardState.getSide();
         int oppSide = 1 ^ side;
@@ -24,133 +46,567 @@ public class MoveGen {
         long oppOcc = boardState.getColorOccupancy(oppSide);
         long fullOcc = myOcc | oppOcc;
 
-        int index = (side == WHITE)?
-                addWPMoves(boardState, moves, oppOcc, fullOcc) : addBPawnMoves(boardState, moves, oppOcc, fullOcc);
-        index = addKnightMoves(boardState, moves, index, side, myOcc, oppOcc);
-        index = addBishopMoves(boardState, moves,  index, side, myOcc, oppOcc, fullOcc);
-        index = addRookMoves(boardState, moves,  index, side, myOcc, oppOcc, fullOcc);
-        index = addQueenMoves(boardState, moves, index, side, myOcc, oppOcc, fullOcc);
-        addKingMoves(boardState, moves, index, side, myOcc, oppOcc, fullOcc);
+        long targets = ~myOcc;
+        long enPassantTarget = boardState.getEnPassantTarget();
 
-        return moves;
+        int index = addPawnMoves(moves, 0, side, boardState.getPieceBB(W_PAWN + side), targets, oppOcc, fullOcc, enPassantTarget);
+        index = addKnightMoves(moves, index, boardState.getPieceBB(W_KNIGHT + side), targets, oppOcc);
+        index = addBishopMoves(moves, index, boardState.getPieceBB(W_BISHOP + side), targets, oppOcc, fullOcc);
+        index = addRookMoves(moves, index, boardState.getPieceBB(W_ROOK + side), targets, oppOcc, fullOcc);
+        index = addQueenMoves(moves, index, boardState.getPieceBB(W_QUEEN + side), targets, oppOcc, fullOcc);
+
+        int kingSq = Long.numberOfTrailingZeros(boardState.getPieceBB(W_KING + side));
+        index = addKingMoves(moves, index, kingSq, targets, oppOcc);
+
+        return addCastlingMoves(moves, index, side, boardState.castlingRights(), kingSq, fullOcc, boardState.getOppAttacks());
+    }
+
+    /**
+     * Generates all strictly legal moves for the side to move into a caller-owned buffer.
+     * <p>
+     * Checkers and pinned pieces are computed once up front. Every piece's targets are then
+     * restricted to the check-evasion mask (the checker and the squares between it and the king),
+     * and pinned pieces are additionally restricted to their pin ray. The king only steps onto
+     * squares the opponent does not attack, and en passant captures are verified separately
+     * against discovered checks along the king's rank and diagonals.
+     * <p>
+     * Every returned move can be made without leaving the own king in check, so no
+     * make / {@link Attacks#isInCheck(BoardState, int)} / unmake round trip is needed.
+     *
+     * @param boardState the current state of the board
+     * @param moves the buffer the encoded moves are written to (starting at index 0)
+     * @return the number of moves written to {@code moves}
+     */
+    public static int legalMoves(BoardState boardState, short[] moves) {
+
+        int side = boardState.getSide();
+        int oppSide = 1 ^ side;
+
+        long oppQueens = boardState.getPieceBB(W_QUEEN + oppSide);
+
+        return legalMoves(moves, side, boardState.getPieceBB(W_PAWN + side), boardState.getPieceBB(W_KNIGHT + side),
+                boardState.getPieceBB(W_BISHOP + side), boardState.getPieceBB(W_ROOK + side), boardState.getPieceBB(W_QUEEN + side),
+                boardState.getPieceBB(W_KING + side), boardState.getColorOccupancy(side), boardState.getColorOccupancy(oppSide),
+                boardState.getPieceBB(W_BISHOP + oppSide) | oppQueens, boardState.getPieceBB(W_ROOK + oppSide) | oppQueens,
+                boardState.castlingRights(), boardState.getEnPassantTarget(), boardState.getOppAttacks(),
+                boardState.getKingDanger(), boardState.getCheckers(), boardState.getPinned());
+    }
+
+    /**
+     * Generates all strictly legal moves of the slot an {@link OffHeapBoardState} points at.
+     * <p>
+     * Same as {@link #legalMoves(BoardState, short[])}, reading the bitboards and the attack information
+     * straight from the slot, so off-heap boards can be searched without copying them onto the heap.
+     *
+     * @param board the cursor on the current position
+     * @param moves the buffer the encoded moves are written to (starting at index 0)
+     * @return the number of moves written to {@code moves}
+     */
+    public static int legalMoves(OffHeapBoardState board, short[] moves) {
+
+        int side = board.getSide();
+        int oppSide = 1 ^ side;
+
+        long oppQueens = board.getPieceBB(W_QUEEN + oppSide);
+
+        return legalMoves(moves, side, board.getPieceBB(W_PAWN + side), board.getPieceBB(W_KNIGHT + side),
+                board.getPieceBB(W_BISHOP + side), board.getPieceBB(W_ROOK + side), board.getPieceBB(W_QUEEN + side),
+                board.getPieceBB(W_KING + side), board.getColorOccupancy(side), board.getColorOccupancy(oppSide),
+                board.getPieceBB(W_BISHOP + oppSide) | oppQueens, board.getPieceBB(W_ROOK + oppSide) | oppQueens,
+                board.castlingRights(), board.getEnPassantTarget(), board.getOppAttacks(),
+                board.getKingDanger(), board.getCheckers(), board.getPinned());
+    }
+
+    /**
+     * Generates all strictly legal moves of the current position of a copy-make {@link PositionStack}.
+     * <p>
+     * Same as {@link #legalMoves(BoardState, short[])}, reading the bitboards and the attack information
+     * straight from the stack's current slot.
+     *
+     * @param stack the stack holding the current position
+     * @param moves the buffer the encoded moves are written to (starting at index 0)
+     * @return the number of moves written to {@code moves}
+     */
+    public static int legalMoves(PositionStack stack, short[] moves) {
+
+        int side = stack.getSide();
+        int oppSide = 1 ^ side;
+
+        long oppQueens = stack.getPieceBB(W_QUEEN + oppSide);
+
+        return legalMoves(moves, side, stack.getPieceBB(W_PAWN + side), stack.getPieceBB(W_KNIGHT + side),
+                stack.getPieceBB(W_BISHOP + side), stack.getPieceBB(W_ROOK + side), stack.getPieceBB(W_QUEEN + side),
+                stack.getPieceBB(W_KING + side), stack.getColorOccupancy(side), stack.getColorOccupancy(oppSide),
+                stack.getPieceBB(W_BISHOP + oppSide) | oppQueens, stack.getPieceBB(W_ROOK + oppSide) | oppQueens,
+                stack.castlingRights(), stack.getEnPassantTarget(), stack.getOppAttacks(),
+                stack.getKingDanger(), stack.getCheckers(), stack.getPinned());
     }
 
-    private static int addWPMoves(BoardState boardState, short[] moves, long oppOcc, long fullOcc) {
+    //the legal move generation of every board representation, over the raw bitboards of the side to move
+    //and its attack information (see BoardState#getOppAttacks() and the following getters)
+    private static int legalMoves(short[] moves, int side, long pawns, long knights, long bishops, long rooks, long queens,
+                                  long king, long myOcc, long oppOcc, long oppBishopsQueens, long oppRooksQueens,
+                                  int castlingRights, long enPassantTarget, long oppAttacks, long kingDanger,
+                                  long checkers, long pinned) {
+
+        long fullOcc = myOcc | oppOcc;
+
+        int kingSq = Long.numberOfTrailingZeros(king);
+
+        int index = addKingMoves(moves, 0, kingSq, ~(myOcc | kingDanger), oppOcc);
+
+        //double check: only the king can move
+        if (Long.bitCount(checkers) > 1) return index;
+
+        long checkMask = ~0L;
+
+        if (checkers == 0) {
+            index = addCastlingMoves(moves, index, side, castlingRights, kingSq, fullOcc, oppAttacks);
+        } else {
+            checkMask = checkers | Attacks.between(kingSq, Long.numberOfTrailingZeros(checkers));
+        }
+
+        long targets = ~myOcc & checkMask;
+
+        for (long pieces = pinned; pieces != 0; pieces &= pieces - 1) {
+
+            int from = Long.numberOfTrailingZeros(pieces);
+
+            //a pinned piece stays on the line through its king and the pinner
+            index = addPinnedMoves(moves, index, side, pieces & -pieces, Attacks.line(kingSq, from) & targets,
+                    pawns, bishops, rooks, queens, oppOcc, fullOcc);
+        }
+
+        long unpinned = ~pinned;
+
+        index = addPawnMoves(moves, index, side, pawns & unpinned, targets, oppOcc, fullOcc, 0);
+        index = addKnightMoves(moves, index, knights & unpinned, targets, oppOcc);
+        index = addBishopMoves(moves, index, bishops & unpinned, targets, oppOcc, fullOcc);
+        index = addRookMoves(moves, index, rooks & unpinned, targets, oppOcc, fullOcc);
+        index = addQueenMoves(moves, index, queens & unpinned, targets, oppOcc, fullOcc);
+
+        if (enPassantTarget == 0) return index;
+
+        return addLegalEnPassant(moves, index, side, kingSq, checkMask, fullOcc, enPassantTarget, pawns, oppBishopsQueens, oppRooksQueens);
+    }
+
+    /**
+     * Generates the tactical pseudo-legal moves for the side to move: captures, en passant
+     * and all promotions (including non-capturing ones).
+     * <p>
+     * Together with {@link #generateQuiets(BoardState, short[])} this yields exactly the moves
+     * of {@link #moves(BoardState, short[])}, which lets {@link MovePicker} generate them in stages.
+     *
+     * @param boardState the current state of the board
+     * @param moves the buffer the encoded moves are written to (starting at index 0)
+     * @return the number of moves written to {@code moves}
+     */
+    static int captureMoves(BoardState boardState, short[] moves) {
+
+        int side = boardState.getSide();
+
+        long oppOcc = boardState.getColorOccupancy(1 ^ side);
+        long fullOcc = boardState.getOccupancy();
+
+        long enPassantTarget = boardState.getEnPassantTarget();
+        long pawns = boardState.getPieceBB(W_PAWN + side);
+        long promotionRank = (side == WHITE)? SEVENTH_RANK : SECOND_RANK;
+
+        int index = addPawnMoves(moves, 0, side, pawns, oppOcc | enPassantTarget, oppOcc, fullOcc, enPassantTarget);
+        index = addPawnMoves(moves, index, side, pawns & promotionRank, ~fullOcc, oppOcc, fullOcc, 0);
+
+        return addPieceCaptures(boardState, moves, index, side, oppOcc, fullOcc);
+    }
+
+    /**
+     * Generates the pseudo-legal moves a quiescence search needs: captures, en passant
+     * and promotions to a queen (capturing or not). Under-promotions are skipped.
+     * <p>
+     * Target sets are masked with the opponent's occupancy at generation time, so no
+     * quiet move is ever produced and filtered afterwards.
+     *
+     * @param boardState the current state of the board
+     * @param moves the buffer the encoded moves are written to (starting at index 0)
+     * @return the number of moves written to {@code moves}
+     */
+    public static int generateCaptures(BoardState boardState, short[] moves) {
+
+        int side = boardState.getSide();
+
+        long oppOcc = boardState.getColorOccupancy(1 ^ side);
+        long fullOcc = boardState.getOccupancy();
 
-        long wPawns = boardState.getPieceBB(W_PAWN);
         long enPassantTarget = boardState.getEnPassantTarget();
+        long pawns = boardState.getPieceBB(W_PAWN + side);
+        long promotionRank = (side == WHITE)? SEVENTH_RANK : SECOND_RANK;
+
+        int index = addPawnMoves(moves, 0, side, pawns & ~promotionRank, oppOcc | enPassantTarget, oppOcc, fullOcc, enPassantTarget);
+        index = addQueenPromotions(moves, index, side, pawns & promotionRank, oppOcc, fullOcc);
+
+        return addPieceCaptures(boardState, moves, index, side, oppOcc, fullOcc);
+    }
+
+    /**
+     * Generates the quiet pseudo-legal moves for the side to move: non-capturing moves
+     * other than promotions, including double pawn pushes and castling.
+     * <p>
+     * Target sets are masked with the empty squares at generation time. This is the only
+     * generator besides {@link #moves(BoardState, short[])} that needs the opponent's attack mask (for castling).
+     *
+     * @param boardState the current state of the board
+     * @param moves the buffer the encoded moves are written to (starting at index 0)
+     * @return the number of moves written to {@code moves}
+     */
+    public static int generateQuiets(BoardState boardState, short[] moves) {
+
+        int side = boardState.getSide();
+        int oppSide = 1 ^ side;
+
+        long oppOcc = boardState.getColorOccupancy(oppSide);
+        long fullOcc = boardState.getOccupancy();
+
+        long empty = ~fullOcc;
+        long promotionRank = (side == WHITE)? SEVENTH_RANK : SECOND_RANK;
+
+        int index = addPawnMoves(moves, 0, side, boardState.getPieceBB(W_PAWN + side) & ~promotionRank, empty, oppOcc, fullOcc, 0);
+        index = addKnightMoves(moves, index, boardState.getPieceBB(W_KNIGHT + side), empty, oppOcc);
+        index = addBishopMoves(moves, index, boardState.getPieceBB(W_BISHOP + side), empty, oppOcc, fullOcc);
+        index = addRookMoves(moves, index, boardState.getPieceBB(W_ROOK + side), empty, oppOcc, fullOcc);
+        index = addQueenMoves(moves, index, boardState.getPieceBB(W_QUEEN + side), empty, oppOcc, fullOcc);
+
+        int kingSq = Long.numberOfTrailingZeros(boardState.getPieceBB(W_KING + side));
+        index = addKingMoves(moves, index, kingSq, empty, oppOcc);
+
+        return addCastlingMoves(moves, index, side, boardState.castlingRights(), kingSq, fullOcc, boardState.getOppAttacks());
+    }
+
+    /**
+     * Generates the quiet pseudo-legal moves that give check, for use in the first plies
+     * of a quiescence search.
+     * <p>
+     * Direct checks are generated by masking each piece type's targets with the squares from
+     * which that piece type attacks the enemy king. Pieces that block one of the own sliders'
+     * lines to the enemy king (discovered check candidates) generate every quiet move that leaves the line.
+     * Their direct checks are all off the line, see the note in the method.
+     * Promotions (covered by {@link #generateCaptures(BoardState, short[])}) and castling are not included.
+     *
+     * @param boardState the current state of the board
+     * @param moves the buffer the encoded moves are written to (starting at index 0)
+     * @return the number of moves written to {@code moves}
+     */
+    public static int generateQuietChecks(BoardState boardState, short[] moves) {
+
+        int side = boardState.getSide();
+        int oppSide = 1 ^ side;
+
+        long myOcc = boardState.getColorOccupancy(side);
+        long oppOcc = boardState.getColorOccupancy(oppSide);
+        long fullOcc = myOcc | oppOcc;
+        long empty = ~fullOcc;
+
+        int oppKingSq = Long.numberOfTrailingZeros(boardState.getPieceBB(W_KING + oppSide));
+
+        long myBishopsQueens = boardState.getPieceBB(W_BISHOP + side) | boardState.getPieceBB(W_QUEEN + side);
+        long myRooksQueens = boardState.getPieceBB(W_ROOK + side) | boardState.getPieceBB(W_QUEEN + side);
 
         int index = 0;
 
-        while (wPawns != 0) {
+        //a single own piece between an own slider and the enemy king discovers the check by leaving the line
+        long discoverers = Attacks.sliderBlockers(oppKingSq, myBishopsQueens, myRooksQueens, fullOcc) & myOcc;
 
-            //isolates the lsb
-            long mask = (-wPawns) & wPawns;
-            int from = Long.numberOfTrailingZeros(mask);
+        for (long pieces = discoverers; pieces != 0; pieces &= pieces - 1) {
 
-            long moveSet = (mask << 8) & ~fullOcc;
-            moveSet |= ((((mask & SECOND_RANK) << 8) & moveSet) << 8) & ~fullOcc;
+            long discoverer = pieces & -pieces;
 
-            moveSet |= (PAWN_MASK[WHITE * BOARD_SIZE + from] & (oppOcc | enPassantTarget));
+            //moves along the line are left out on purpose: they discover nothing, and a discoverer that could give
+            //a direct check from the line (a queen, or a bishop or rook sliding its own way) would already be giving
+            //check through the open squares to the king, which cannot happen with its side to move
+            long offLine = empty & ~Attacks.line(oppKingSq, Long.numberOfTrailingZeros(discoverer));
 
-            while (moveSet != 0) {
+            index = addDiscoveredCheckMoves(boardState, moves, index, side, discoverer, offLine, oppOcc, fullOcc);
+        }
 
-                long moveMask = (-moveSet) & moveSet;
-                int to = Long.numberOfTrailingZeros(moveMask);
-                moveSet -= moveMask;
+        long others = ~discoverers;
+        long promotionRank = (side == WHITE)? SEVENTH_RANK : SECOND_RANK;
 
-                int moveType = 0;
-                short move;
+        long pawnChecks = PAWN_MASK[oppSide * BOARD_SIZE + oppKingSq] & empty;
+        long knightChecks = KNIGHT_MASK[oppKingSq] & empty;
+        long bishopChecks = lookUpBishop(oppKingSq, 0, fullOcc) & empty;
+        long rookChecks = lookUpRook(oppKingSq, 0, fullOcc) & empty;
 
-                if ((moveMask & oppOcc) != 0) moveType |= CAPTURE;
-                if ((moveMask & enPassantTarget) != 0) moveType |= EP_CAPTURE;
+        index = addPawnMoves(moves, index, side, boardState.getPieceBB(W_PAWN + side) & ~promotionRank & others, pawnChecks, oppOcc, fullOcc, 0);
+        index = addKnightMoves(moves, index, boardState.getPieceBB(W_KNIGHT + side) & others, knightChecks, oppOcc);
+        index = addBishopMoves(moves, index, boardState.getPieceBB(W_BISHOP + side) & others, bishopChecks, oppOcc, fullOcc);
+        index = addRookMoves(moves, index, boardState.getPieceBB(W_ROOK + side) & others, rookChecks, oppOcc, fullOcc);
 
-                if ((moveMask >>> 16) == mask) moveType |= DOUBLE_PAWN_PUSH;
+        return addQueenMoves(moves, index, boardState.getPieceBB(W_QUEEN + side) & others, bishopChecks | rookChecks, oppOcc, fullOcc);
+    }
+
+    private static int addDiscoveredCheckMoves(BoardState boardState, short[] moves, int index, int side, long discoverer,
+                                               long targets, long oppOcc, long fullOcc) {
+
+        int from = Long.numberOfTrailingZeros(discoverer);
+        long promotionRank = (side == WHITE)? SEVENTH_RANK : SECOND_RANK;
+
+        return switch (boardState.pieceAt(from) - side) {
+            case W_PAWN -> addPawnMoves(moves, index, side, discoverer & ~promotionRank, targets, oppOcc, fullOcc, 0);
+            case W_KNIGHT -> addKnightMoves(moves, index, discoverer, targets, oppOcc);
+            case W_BISHOP -> addBishopMoves(moves, index, discoverer, targets, oppOcc, fullOcc);
+            case W_ROOK -> addRookMoves(moves, index, discoverer, targets, oppOcc, fullOcc);
+            case W_QUEEN -> addQueenMoves(moves, index, discoverer, targets, oppOcc, fullOcc);
+            default -> addKingMoves(moves, index, from, targets, oppOcc);
+        };
+    }
+
+    private static int addPieceCaptures(BoardState boardState, short[] moves, int index, int side, long oppOcc, long fullOcc) {
+
+        index = addKnightMoves(moves, index, boardState.getPieceBB(W_KNIGHT + side), oppOcc, oppOcc);
+        index = addBishopMoves(moves, index, boardState.getPieceBB(W_BISHOP + side), oppOcc, oppOcc, fullOcc);
+        index = addRookMoves(moves, index, boardState.getPieceBB(W_ROOK + side), oppOcc, oppOcc, fullOcc);
+        index = addQueenMoves(moves, index, boardState.getPieceBB(W_QUEEN + side), oppOcc, oppOcc, fullOcc);
+
+        int kingSq = Long.numberOfTrailingZeros(boardState.getPieceBB(W_KING + side));
+
+        return addKingMoves(moves, index, kingSq, oppOcc, oppOcc);
+    }
+
+    /**
+     * Checks whether an encoded move is pseudo-legal in the given position, i.e. whether
+     * {@link #moves(BoardState, short[])} would generate it with exactly this move type.
+     * <p>
+     * Used to validate moves that do not come from the generator of the current node,
+     * such as transposition table moves or killer moves, before they are made.
+     *
+     * @param boardState the current state of the board
+     * @param move the encoded move to validate
+     * @return {@code true} if the move may be passed to {@link BoardState#makeMove(short)}
+     */
+    public static boolean isPseudoLegal(BoardState boardState, short move) {
+
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        int moveType = Move.getMoveType(move);
+
+        int side = boardState.getSide();
+        int piece = boardState.pieceAt(from);
+
+        if (piece == EMPTY_SQUARE || (piece & 1) != side) return false;
+
+        long myOcc = boardState.getColorOccupancy(side);
+        long oppOcc = boardState.getColorOccupancy(1 ^ side);
+        long fullOcc = myOcc | oppOcc;
+
+        long toMask = 1L << to;
+
+        if (moveType == KING_SIDE_CASTLE || moveType == QUEEN_SIDE_CASTLE) {
+
+            if (piece != W_KING + side || to != from + ((moveType == KING_SIDE_CASTLE)? 2 : -2)) return false;
+
+            return canCastle(boardState.castlingRights(), side, moveType, fullOcc, boardState.getOppAttacks());
+        }
 
-                if ((moveMask & EIGHT_RANK) != 0) {
-                    moveType |= PROMOTION;
+        if (piece == W_PAWN + side) {
 
-                    for (int i = 0; i < 4; i++) {
-                        moveType = (moveType & 0xC) | i;
-                        move = Move.encode(from, to, moveType);
-                        moves[index++] = move;
-                    }
+            long lastRank = (side == WHITE)? EIGHT_RANK : FIRST_RANK;
+            boolean isPromotion = (toMask & lastRank) != 0;
+            boolean isCapture = (toMask & oppOcc) != 0;
 
-                } else {
-                    move = Move.encode(from, to, moveType);
-                    moves[index++] = move;
-                }
+            if (((moveType & PROMOTION) != 0) != isPromotion) return false;
+            if (isPromotion) moveType &= ~0x3;
+
+            int push = (side == WHITE)? 8 : -8;
+
+            return switch (moveType) {
+                case QUIET_MOVE, PROMOTION -> to == from + push && (toMask & fullOcc) == 0;
+                case DOUBLE_PAWN_PUSH -> to == from + 2 * push
+                        && ((1L << from) & ((side == WHITE)? SECOND_RANK : SEVENTH_RANK)) != 0
+                        && (((1L << (from + push)) | toMask) & fullOcc) == 0;
+                case CAPTURE, PROMO_CAP_N -> isCapture && (PAWN_MASK[side * BOARD_SIZE + from] & toMask) != 0;
+                case EP_CAPTURE -> (toMask & boardState.getEnPassantTarget() & PAWN_MASK[side * BOARD_SIZE + from]) != 0;
+                default -> false;
+            };
+        }
+
+        //every other piece only makes plain quiet moves or captures
+        if (moveType != ((toMask & oppOcc) != 0? CAPTURE : QUIET_MOVE) || (toMask & myOcc) != 0) return false;
+
+        long atkMask = switch (piece - side) {
+            case W_KNIGHT -> KNIGHT_MASK[from];
+            case W_BISHOP -> lookUpBishop(from, 0, fullOcc);
+            case W_ROOK -> lookUpRook(from, 0, fullOcc);
+            case W_QUEEN -> lookUpBishop(from, 0, fullOcc) | lookUpRook(from, 0, fullOcc);
+            default -> KING_MASK[from];
+        };
+
+        return (atkMask & toMask) != 0;
+    }
+
+    private static int addPinnedMoves(short[] moves, int index, int side, long pinnedPiece, long targets,
+                                      long pawns, long bishops, long rooks, long queens, long oppOcc, long fullOcc) {
+
+        if ((pinnedPiece & pawns) != 0) return addPawnMoves(moves, index, side, pinnedPiece, targets, oppOcc, fullOcc, 0);
+        if ((pinnedPiece & bishops) != 0) return addBishopMoves(moves, index, pinnedPiece, targets, oppOcc, fullOcc);
+        if ((pinnedPiece & rooks) != 0) return addRookMoves(moves, index, pinnedPiece, targets, oppOcc, fullOcc);
+        if ((pinnedPiece & queens) != 0) return addQueenMoves(moves, index, pinnedPiece, targets, oppOcc, fullOcc);
+
+        //a pinned knight can never move
+        return index;
+    }
+
+    private static int addLegalEnPassant(short[] moves, int index, int side, int kingSq, long checkMask, long fullOcc,
+                                         long enPassantTarget, long myPawns, long oppBishopsQueens, long oppRooksQueens) {
+
+        int oppSide = 1 ^ side;
+        int to = Long.numberOfTrailingZeros(enPassantTarget);
+        long capturedMask = (side == WHITE)? enPassantTarget >>> 8 : enPassantTarget << 8;
+
+        //when in check, the capture has to either remove the checker or block the checking ray
+        if (((enPassantTarget | capturedMask) & checkMask) == 0) return index;
+
+        //own pawns standing on the squares from which a pawn attacks the target
+        long pawns = PAWN_MASK[oppSide * BOARD_SIZE + to] & myPawns;
+
+        while (pawns != 0) {
+
+            long fromMask = (-pawns) & pawns;
+            int from = Long.numberOfTrailingZeros(fromMask);
+
+            //two pawns leave the king's rank at once, so pins cannot catch this case: recheck the sliders
+            long occAfter = fullOcc ^ fromMask ^ capturedMask ^ enPassantTarget;
+
+            if ((lookUpBishop(kingSq, 0, occAfter) & oppBishopsQueens) == 0
+                    && (lookUpRook(kingSq, 0, occAfter) & oppRooksQueens) == 0) {
+                moves[index++] = Move.encode(from, to, EP_CAPTURE);
             }
 
-            wPawns -= mask;
+            pawns -= fromMask;
         }
 
         return index;
     }
 
-    private static int addBPawnMoves(BoardState boardState, short[] moves, long oppOcc, long fullOcc) {
+    /**
+     * Generates pawn moves for a whole pawn set at once.
+     * <p>
+     * Single pushes, double pushes and both capture directions are each computed with one shift
+     * over the entire bitboard. Every resulting target set then has a fixed from-offset and a fixed
+     * move type, so it is serialized without any per-target branching. Only en passant, which involves
+     * at most two pawns, is resolved per pawn.
+     *
+     * @param side the side the pawns belong to
+     * @param pawns the pawns to generate moves for
+     * @param targets the allowed destination squares
+     * @param enPassantTarget the en passant target square, or 0 to skip en passant
+     */
+    private static int addPawnMoves(short[] moves, int index, int side, long pawns, long targets, long oppOcc, long fullOcc, long enPassantTarget) {
+
+        int push = (side == WHITE)? 8 : -8;
+        int westCapture = push - 1;
+        int eastCapture = push + 1;
+
+        long empty = ~fullOcc;
+        long lastRank = (side == WHITE)? EIGHT_RANK : FIRST_RANK;
+        long doublePushRank = (side == WHITE)? THIRD_RANK : SIXTH_RANK;
+
+        long singlePushes = shift(pawns, push) & empty;
+        long doublePushes = shift(singlePushes & doublePushRank, push) & empty & targets;
+        singlePushes &= targets;
+
+        long westCaptures = shift(pawns & ~A_FILE, westCapture) & oppOcc & targets;
+        long eastCaptures = shift(pawns & ~H_FILE, eastCapture) & oppOcc & targets;
+
+        index = serialize(moves, index, singlePushes & ~lastRank, push, QUIET_MOVE);
+        index = serialize(moves, index, doublePushes, 2 * push, DOUBLE_PAWN_PUSH);
+        index = serialize(moves, index, westCaptures & ~lastRank, westCapture, CAPTURE);
+        index = serialize(moves, index, eastCaptures & ~lastRank, eastCapture, CAPTURE);
+
+        index = serializePromotions(moves, index, singlePushes & lastRank, push, PROMO_N);
+        index = serializePromotions(moves, index, westCaptures & lastRank, westCapture, PROMO_CAP_N);
+        index = serializePromotions(moves, index, eastCaptures & lastRank, eastCapture, PROMO_CAP_N);
+
+        if ((enPassantTarget & targets) == 0) return index;
+
+        int to = Long.numberOfTrailingZeros(enPassantTarget);
+
+        //own pawns standing on the squares from which a pawn attacks the target
+        long epPawns = PAWN_MASK[(1 ^ side) * BOARD_SIZE + to] & pawns;
+
+        while (epPawns != 0) {
+            moves[index++] = Move.encode(Long.numberOfTrailingZeros(epPawns), to, EP_CAPTURE);
+            epPawns &= epPawns - 1;
+        }
 
-        long bPawns = boardState.getPieceBB(B_PAWN);
-        long enPassantTarget = boardState.getEnPassantTarget();
+        return index;
+    }
 
-        int index = 0;
+    /**
+     * Generates queen promotions only (pushes and captures) for pawns on the promotion rank.
+     */
+    private static int addQueenPromotions(short[] moves, int index, int side, long pawns, long oppOcc, long fullOcc) {
 
-        while (bPawns != 0) {
+        int push = (side == WHITE)? 8 : -8;
+        int westCapture = push - 1;
+        int eastCapture = push + 1;
 
-            //isolates the lsb
-            long mask = (-bPawns) & bPawns;
-            int from = Long.numberOfTrailingZeros(mask);
+        index = serialize(moves, index, shift(pawns, push) & ~fullOcc, push, PROMO_Q);
+        index = serialize(moves, index, shift(pawns & ~A_FILE, westCapture) & oppOcc, westCapture, PROMO_CAP_Q);
 
-            long moveSet = (mask >>> 8) & ~fullOcc;
-            moveSet |= ((((mask & SEVENTH_RANK) >>> 8) & moveSet) >>> 8) & ~fullOcc;
+        return serialize(moves, index, shift(pawns & ~H_FILE, eastCapture) & oppOcc, eastCapture, PROMO_CAP_Q);
+    }
 
-            moveSet |= (PAWN_MASK[BLACK * BOARD_SIZE + from] & (oppOcc | enPassantTarget));
+    /**
+     * Shifts a bitboard towards higher squares for positive offsets and towards lower squares for negative ones.
+     */
+    private static long shift(long bb, int offset) {
+        return (offset > 0)? bb << offset : bb >>> -offset;
+    }
 
-            while (moveSet != 0) {
+    /**
+     * Writes one move per set bit, all sharing the same from-offset and move type.
+     */
+    private static int serialize(short[] moves, int index, long toSet, int offset, int moveType) {
 
-                long moveMask = (- moveSet) & moveSet;
-                int to = Long.numberOfTrailingZeros(moveMask);
-                moveSet -= moveMask;
+        while (toSet != 0) {
+
+            int to = Long.numberOfTrailingZeros(toSet);
+            moves[index++] = Move.encode(to - offset, to, moveType);
 
-                int moveType = 0;
-                short move;
+            toSet &= toSet - 1;
+        }
 
-                if ((moveMask & oppOcc) != 0) moveType |= CAPTURE;
-                if ((moveMask & enPassantTarget) != 0) moveType |= EP_CAPTURE;
+        return index;
+    }
 
-                if ((moveMask << 16) == mask) moveType |= DOUBLE_PAWN_PUSH;
+    /**
+     * Writes the four promotions (knight, bishop, rook, queen) per set bit.
+     *
+     * @param baseType {@code PROMO_N} or {@code PROMO_CAP_N}
+     */
+    private static int serializePromotions(short[] moves, int index, long toSet, int offset, int baseType) {
 
-                if ((moveMask & FIRST_RANK) != 0) {
-                    moveType |= PROMOTION;
+        while (toSet != 0) {
 
-                    for (int i = 0; i < 4; i++) {
-                        moveType = (moveType & 0xC) | i;
-                        move = Move.encode(from, to, moveType);
-                        moves[index++] = move;
-                    }
+            int to = Long.numberOfTrailingZeros(toSet);
+            int from = to - offset;
 
-                } else {
-                    move = Move.encode(from, to, moveType);
-                    moves[index++] = move;
-                }
+            for (int i = 0; i < 4; i++) {
+                moves[index++] = Move.encode(from, to, baseType | i);
             }
 
-            bPawns -= mask;
+            toSet &= toSet - 1;
         }
 
         return index;
     }
 
-    private static int addKnightMoves(BoardState boardState, short[] moves, int index, int side, long myOcc, long oppOcc) {
-
-        long knights = boardState.getPieceBB(W_KNIGHT + side);
+    private static int addKnightMoves(short[] moves, int index, long knights, long targets, long oppOcc) {
 
         while (knights != 0) {
 
             long mask = (-knights) & knights;
             int from = Long.numberOfTrailingZeros(mask);
 
-            long moveSet = KNIGHT_MASK[from] & ~myOcc;
+            long moveSet = KNIGHT_MASK[from] & targets;
 
             while (moveSet != 0) {
 
@@ -171,16 +627,14 @@ public class MoveGen {
         return index;
     }
 
-    private static int addBishopMoves(BoardState boardState, short[] moves, int index, int side, long myOcc, long oppOcc, long fullOcc) {
-
-        long bishops = boardState.getPieceBB(W_BISHOP + side);
+    private static int addBishopMoves(short[] moves, int index, long bishops, long targets, long oppOcc, long fullOcc) {
 
         while (bishops != 0) {
 
             long mask = (-bishops) & bishops;
             int from = Long.numberOfTrailingZeros(mask);
 
-            long atkMask = lookUpBishop(from, myOcc, fullOcc);
+            long atkMask = lookUpBishop(from, 0, fullOcc) & targets;
 
             while (atkMask != 0) {
 
@@ -201,16 +655,14 @@ public class MoveGen {
         return index;
     }
 
-    private static int addRookMoves(BoardState boardState, short[] moves, int index, int side, long myOcc, long oppOcc, long fullOcc) {
-
-        long rooks = boardState.getPieceBB(W_ROOK + side);
+    private static int addRookMoves(short[] moves, int index, long rooks, long targets, long oppOcc, long fullOcc) {
 
         while (rooks != 0) {
 
             long mask = (-rooks) & rooks;
             int from = Long.numberOfTrailingZeros(mask);
 
-            long atkMask = lookUpRook(from, myOcc, fullOcc);
+            long atkMask = lookUpRook(from, 0, fullOcc) & targets;
 
             while (atkMask != 0) {
 
@@ -231,16 +683,14 @@ public class MoveGen {
         return index;
     }
 
-    private static int addQueenMoves(BoardState boardState, short[] moves, int index, int side, long myOcc, long oppOcc, long fullOcc) {
-
-        long queens = boardState.getPieceBB(W_QUEEN + side);
+    private static int addQueenMoves(short[] moves, int index, long queens, long targets, long oppOcc, long fullOcc) {
 
         while (queens != 0) {
 
             long mask = (-queens) & queens;
             int from = Long.numberOfTrailingZeros(mask);
 
-            long atkMask = lookUpBishop(from, myOcc, fullOcc) | lookUpRook(from, myOcc, fullOcc);
+            long atkMask = (lookUpBishop(from, 0, fullOcc) | lookUpRook(from, 0, fullOcc)) & targets;
 
             while (atkMask != 0) {
 
@@ -261,21 +711,9 @@ public class MoveGen {
         return index;
     }
 
-    private static int addKingMoves(BoardState boardState, short[] moves, int index, int side, long myOcc,long oppOcc, long fullOcc) {
-
-        int oppSide = 1 ^ side;
-        long king = boardState.getPieceBB(W_KING + side);
-        int from = Long.numberOfTrailingZeros(king);
+    private static int addKingMoves(short[] moves, int index, int from, long targets, long oppOcc) {
 
-        ////TODO: FIX THIS NPS BOTTLENECK
-        long pawnAtkMaks = (side == WHITE)? Attacks.bPawnAtk(boardState) : Attacks.wPawnAtk(boardState);
-        long oppAtkMask = pawnAtkMaks | Attacks.knightAtk(boardState, oppSide)
-                | Attacks.bishopAtk(boardState, oppSide, oppOcc, fullOcc)
-                | Attacks.rookAtk(boardState, oppSide, oppOcc, fullOcc)
-                | Attacks.queenAtk(boardState, oppSide, oppOcc, fullOcc)
-                | Attacks.kingAtk(boardState, oppSide);
-
-        long atkMask = KING_MASK[from] & ~myOcc;
+        long atkMask = KING_MASK[from] & targets;
 
         while (atkMask != 0) {
 
@@ -290,39 +728,46 @@ public class MoveGen {
             atkMask -= moveMask;
         }
 
-        long castlingRights = (boardState.castlingRights() & (0x3L << (2 * side))) >>> (2 * side);
+        return index;
+    }
+
+    private static int addCastlingMoves(short[] moves, int index, int side, int castlingRights, int from, long fullOcc, long oppAtkMask) {
+
+        if (canCastle(castlingRights, side, KING_SIDE_CASTLE, fullOcc, oppAtkMask)) {
+            moves[index++] = Move.encode(from, from + 2, KING_SIDE_CASTLE);
+        }
+
+        if (canCastle(castlingRights, side, QUEEN_SIDE_CASTLE, fullOcc, oppAtkMask)) {
+            moves[index++] = Move.encode(from, from - 2, QUEEN_SIDE_CASTLE);
+        }
+
+        return index;
+    }
+
+    private static boolean canCastle(int castlingRights, int side, int moveType, long fullOcc, long oppAtkMask) {
+
+        castlingRights = (castlingRights & (0x3 << (2 * side))) >>> (2 * side);
 
         long relevantRank = FIRST_RANK << (side * 56);
 
-        if (((relevantRank & E_FILE) & oppAtkMask) != 0) return index;
+        if (((relevantRank & E_FILE) & oppAtkMask) != 0) return false;
 
-        if ((castlingRights & 0x2) != 0) {
-            int to = from + 2;
-            int moveType = 0x2;
+        if (moveType == KING_SIDE_CASTLE) {
+
+            if ((castlingRights & 0x2) == 0) return false;
 
             long fSq = (F_FILE & relevantRank) & (fullOcc | oppAtkMask);
             long gSq = (G_FILE & relevantRank) & (fullOcc | oppAtkMask);
 
-            if ((fSq | gSq) == 0) {
-                short move = Move.encode(from, to, moveType);
-                moves[index++] = move;
-            }
+            return (fSq | gSq) == 0;
         }
 
-        if ((castlingRights & 0x1) != 0) {
-            int to = from - 2;
-            int moveType = 0x3;
-
-            long bSq = (B_FILE & relevantRank) & fullOcc;
-            long cSq = (C_FILE & relevantRank) & (fullOcc | oppAtkMask);
-            long dSq = (D_FILE & relevantRank) & (fullOcc | oppAtkMask);
+        if ((castlingRights & 0x1) == 0) return false;
 
-            if ((bSq | cSq | dSq) == 0) {
-                short move = Move.encode(from, to, moveType);
-                moves[index++] = move;
-            }
-        }
+        long bSq = (B_FILE & relevantRank) & fullOcc;
+        long cSq = (C_FILE & relevantRank) & (fullOcc | oppAtkMask);
+        long dSq = (D_FILE & relevantRank) & (fullOcc | oppAtkMask);
 
-        return index;
+        return (bSq | cSq | dSq) == 0;
     }
 }
@@ -0,0 +1,195 @@
+package board;
+
+import static constants.BoardConstants.*;
+
+/**
+ * Staged (lazy) pseudo-legal move generator for search.
+ * <p>
+ * Instead of producing the full move list up front, moves are handed out one at a time
+ * in the following phases:
+ * <ol>
+ * <li><b>Hash move:</b> the transposition table move, if it is pseudo-legal in this position.</li>
+ * <li><b>Captures:</b> captures, en passant and promotions, ordered by MVV-LVA.</li>
+ * <li><b>Killers:</b> up to two quiet killer moves, if they are pseudo-legal in this position.</li>
+ * <li><b>Quiets:</b> all remaining quiet moves (including castling).</li>
+ * </ol>
+ * A phase is only generated once the previous one is used up, so a node that cuts off early
+ * never generates its quiet moves, and the opponent attack mask needed for castling is never built.
+ * <p>
+ * Moves are pseudo-legal: the caller still has to reject moves that leave its king in check.
+ * One instance should be kept per ply and re-initialised with {@link #init(BoardState, short, short, short)}
+ * at every node, which avoids any allocation during search.
+ */
+public class MovePicker {
+
+    /**
+     * Returned by {@link #next()} once every phase is exhausted. Also used to pass "no move"
+     * as hash or killer move.
+     */
+    public static final short NO_MOVE = -1;
+
+    private static final int STAGE_HASH_MOVE = 0;
+    private static final int STAGE_GEN_CAPTURES = 1;
+    private static final int STAGE_CAPTURES = 2;
+    private static final int STAGE_KILLER_1 = 3;
+    private static final int STAGE_KILLER_2 = 4;
+    private static final int STAGE_GEN_QUIETS = 5;
+    private static final int STAGE_QUIETS = 6;
+    private static final int STAGE_DONE = 7;
+
+    /**
+     * Piece values used for MVV-LVA ordering, indexed by colored piece (e.g. {@code W_QUEEN}).
+     */
+    private static final int[] MVV_LVA_VALUE = {1, 1, 3, 3, 3, 3, 5, 5, 9, 9, 20, 20};
+
+    private final short[] moves = new short[MAX_MOVES];
+    private final int[] scores = new int[MAX_MOVES];
+
+    private BoardState boardState;
+
+    private short hashMove;
+    private short killer1;
+    private short killer2;
+
+    private int stage;
+    private int index;
+    private int moveCount;
+
+    /**
+     * Prepares the picker for a new node. No moves are generated until {@link #next()} is called.
+     *
+     * @param boardState the current state of the board
+     * @param hashMove the transposition table move, or {@link #NO_MOVE}
+     * @param killer1 the first killer move of this ply, or {@link #NO_MOVE}
+     * @param killer2 the second killer move of this ply, or {@link #NO_MOVE}
+     */
+    public void init(BoardState boardState, short hashMove, short killer1, short killer2) {
+        this.boardState = boardState;
+        this.hashMove = hashMove;
+        this.killer1 = killer1;
+        this.killer2 = killer2;
+
+        stage = STAGE_HASH_MOVE;
+        index = 0;
+        moveCount = 0;
+    }
+
+    /**
+     * Returns the next move in staged order.
+     * <p>
+     * Moves handed out in an earlier phase (hash move, killers) are not repeated later.
+     *
+     * @return the next pseudo-legal move, or {@link #NO_MOVE} once all phases are exhausted
+     */
+    public short next() {
+
+        while (true) {
+
+            switch (stage) {
+
+                case STAGE_HASH_MOVE -> {
+                    stage = STAGE_GEN_CAPTURES;
+                    if (hashMove != NO_MOVE && MoveGen.isPseudoLegal(boardState, hashMove)) return hashMove;
+                }
+
+                case STAGE_GEN_CAPTURES -> {
+                    moveCount = MoveGen.captureMoves(boardState, moves);
+                    index = 0;
+                    scoreCaptures();
+                    stage = STAGE_CAPTURES;
+                }
+
+                case STAGE_CAPTURES -> {
+                    while (index < moveCount) {
+                        short move = pickBest();
+                        if (move != hashMove) return move;
+                    }
+                    stage = STAGE_KILLER_1;
+                }
+
+                case STAGE_KILLER_1 -> {
+                    stage = STAGE_KILLER_2;
+                    if (isUsableKiller(killer1)) return killer1;
+                }
+
+                case STAGE_KILLER_2 -> {
+                    stage = STAGE_GEN_QUIETS;
+                    if (killer2 != killer1 && isUsableKiller(killer2)) return killer2;
+                }
+
+                case STAGE_GEN_QUIETS -> {
+                    moveCount = MoveGen.generateQuiets(boardState, moves);
+                    index = 0;
+                    stage = STAGE_QUIETS;
+                }
+
+                case STAGE_QUIETS -> {
+                    while (index < moveCount) {
+                        short move = moves[index++];
+                        if (move != hashMove && move != killer1 && move != killer2) return move;
+                    }
+                    stage = STAGE_DONE;
+                }
+
+                default -> {
+                    return NO_MOVE;
+                }
+            }
+        }
+    }
+
+    /**
+     * A killer is only tried if it is a quiet move that was not already tried as hash move.
+     * Tactical killers are covered by the capture phase.
+     */
+    private boolean isUsableKiller(short killer) {
+        return killer != NO_MOVE
+                && killer != hashMove
+                && (Move.getMoveType(killer) & (CAPTURE | PROMOTION)) == 0
+                && MoveGen.isPseudoLegal(boardState, killer);
+    }
+
+    private void scoreCaptures() {
+
+        for (int i = 0; i < moveCount; i++) {
+
+            short move = moves[i];
+            int moveType = Move.getMoveType(move);
+
+            int attacker = boardState.pieceAt(Move.getFrom(move));
+            int victim = (moveType == EP_CAPTURE)? W_PAWN : boardState.pieceAt(Move.getTo(move));
+
+            int value = (victim == EMPTY_SQUARE)? 0 : MVV_LVA_VALUE[victim];
+            if ((moveType & PROMOTION) != 0) value += MVV_LVA_VALUE[Move.getPromotedPieceBase(moveType)];
+
+            //most valuable victim first, least valuable attacker as tie-break
+            scores[i] = value * 32 - MVV_LVA_VALUE[attacker];
+        }
+    }
+
+    /**
+     * Selection step: swaps the best scored remaining move to the front and returns it.
+     * Only the moves actually handed out are ever sorted.
+     */
+    private short pickBest() {
+
+        int best = index;
+
+        for (int i = index + 1; i < moveCount; i++) {
+            if (scores[i] > scores[best]) best = i;
+        }
+
+        short move = moves[best];
+        int score = scores[best];
+
+        moves[best] = moves[index];
+        scores[best] = scores[index];
+
+        moves[index] = move;
+        scores[index] = score;
+
+        index++;
+
+        return move;
+    }
+}
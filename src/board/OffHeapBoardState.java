@@ -0,0 +1,769 @@
+package board;
+
+import java.lang.foreign.MemorySegment;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_INT_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_LONG_UNALIGNED;
+import static constants.BitboardMasks.*;
+import static constants.BoardConstants.*;
+import static constants.PieceSquareTables.*;
+import static constants.Zobrist.*;
+
+/**
+ * Variant of {@link BoardState} whose whole state lives in one slot of a {@link BoardArena}, outside the GC heap.
+ * <p>
+ * A slot has a fixed layout of {@link #slotSize(int)} bytes:
+ * <ul>
+ * <li>[0-95]: the piece bitboards, indexed by piece (e.g. {@code W_QUEEN})</li>
+ * <li>[96-111]: the occupancy of white and black</li>
+ * <li>[112-175]: the mailbox, one byte per square ({@code EMPTY_SQUARE} if none)</li>
+ * <li>[176]: the zobrist hash</li>
+ * <li>[184]: the pawn key</li>
+ * <li>[192]: the material key</li>
+ * <li>[200]: bits 0-31 the packed material + piece-square score, bits 32-63 the game phase</li>
+ * <li>[208]: bit 0 side to move, bits 1-4 castling rights, bits 8-14 en passant square (64 if none),
+ * bits 16-31 half move counter, bits 32-63 full move counter</li>
+ * <li>[216]: the ply, as int</li>
+ * <li>[224-]: the history, 40 bytes per ply: the hash before the move, then bits 0-31 of the previous state,
+ * bits 32-47 move ({@code NULL_MOVE} for a null move) and bits 48-51 captured piece + 1 (0 if none),
+ * then the pawn key, material key and score before the move (not written for a null move)</li>
+ * </ul>
+ * An instance is only a cursor: {@link #moveTo(long)} points it at another slot, so one object per worker
+ * thread can walk millions of boards. {@link #makeMove(short)}, {@link #unmakeMove()} and the null moves change
+ * pieces, hash and counters exactly like {@link BoardState}, and {@link MoveGen#legalMoves(OffHeapBoardState, short[])}
+ * generates the moves of the slot. The hash, the pawn and material keys and the score are kept up to date
+ * like on the heap, and restored from the history on unmake. The attack information is cached in the cursor.
+ * <p>
+ * A cursor is not thread-safe, give every thread its own. Different threads may work on different slots of
+ * the same arena at the same time, but only one cursor may point at a slot while it changes.
+ */
+public class OffHeapBoardState {
+
+    private static final long PIECE_BB = 0;
+    private static final long OCCUPANCY = PIECE_BB + DISTINCT_PIECES_COUNT * Long.BYTES;
+    private static final long MAILBOX = OCCUPANCY + 2 * Long.BYTES;
+    private static final long HASH = MAILBOX + BOARD_SIZE;
+    private static final long PAWN_KEY = HASH + Long.BYTES;
+    private static final long MATERIAL_KEY = PAWN_KEY + Long.BYTES;
+    private static final long EVAL = MATERIAL_KEY + Long.BYTES;
+    private static final long STATE = EVAL + Long.BYTES;
+    private static final long PLY = STATE + Long.BYTES;
+    private static final long HISTORY = PLY + Long.BYTES;
+
+    //fields of a history entry, relative to its start
+    private static final long HISTORY_HASH = 0;
+    private static final long HISTORY_RECORD = HISTORY_HASH + Long.BYTES;
+    private static final long HISTORY_PAWN_KEY = HISTORY_RECORD + Long.BYTES;
+    private static final long HISTORY_MATERIAL_KEY = HISTORY_PAWN_KEY + Long.BYTES;
+    private static final long HISTORY_EVAL = HISTORY_MATERIAL_KEY + Long.BYTES;
+
+    private static final long HISTORY_ENTRY_SIZE = HISTORY_EVAL + Long.BYTES;
+
+    private static final int CASTLING_SHIFT = 1;
+    private static final int EN_PASSANT_SHIFT = 8;
+    private static final int HALF_MOVE_SHIFT = 16;
+    private static final int FULL_MOVE_SHIFT = 32;
+
+    private static final int MOVE_SHIFT = 32;
+    private static final int CAPTURE_SHIFT = 48;
+
+    //the material key counts of pawns, rooks and queens: while any is left, mate is still possible
+    private static final long PAWNS_ROOKS_QUEENS_MASK = 0xFF_FF00_00FFL;
+
+    private final MemorySegment segment;
+
+    //byte offset of the current slot in the segment, every field is read at base + its offset. Slots are
+    //aligned, the unaligned layouts only spare the access the alignment check
+    private long base;
+
+    //the attack information of the current position, see BoardState
+    private boolean attackInfoValid = false;
+    private long oppAttacks;
+    private long kingDanger;
+    private long checkers;
+    private long pinned;
+
+    /**
+     * Creates a cursor on the arena's segment, pointing at its first slot.
+     *
+     * @param segment the segment holding the slots
+     */
+    OffHeapBoardState(MemorySegment segment) {
+        this.segment = segment;
+        moveTo(0);
+    }
+
+    /**
+     * Gets the number of bytes of a slot.
+     *
+     * @param maxPly the maximum number of moves made on top of the position loaded into the slot
+     * @return the slot size, a multiple of 64 so every slot starts on a cache line
+     */
+    public static long slotSize(int maxPly) {
+        return (HISTORY + maxPly * HISTORY_ENTRY_SIZE + 63) & ~63L;
+    }
+
+    /**
+     * Points this cursor at another slot.
+     *
+     * @param offset the byte offset of the slot, see {@link BoardArena#offsetOf(long)}
+     */
+    public void moveTo(long offset) {
+        base = offset;
+        attackInfoValid = false;
+    }
+
+    /**
+     * Gets the slot this cursor points at.
+     *
+     * @return the byte offset of the slot in the arena
+     */
+    public long getOffset() {
+        return base;
+    }
+
+    /**
+     * Copies a position into the slot as ply 0.
+     *
+     * @param boardState the position to load
+     */
+    public void set(BoardState boardState) {
+
+        for (int piece = 0; piece < DISTINCT_PIECES_COUNT; piece++) setPieceBB(piece, boardState.getPieceBB(piece));
+
+        setOccupancy(WHITE, boardState.getColorOccupancy(WHITE));
+        setOccupancy(BLACK, boardState.getColorOccupancy(BLACK));
+
+        for (int square = 0; square < BOARD_SIZE; square++) setPieceAt(square, boardState.pieceAt(square));
+
+        segment.set(JAVA_LONG_UNALIGNED, base + HASH, boardState.getZobristHash());
+        segment.set(JAVA_LONG_UNALIGNED, base + PAWN_KEY, boardState.getPawnKey());
+        segment.set(JAVA_LONG_UNALIGNED, base + MATERIAL_KEY, boardState.getMaterialKey());
+        segment.set(JAVA_LONG_UNALIGNED, base + EVAL, (score(boardState.getMidgameScore(), boardState.getEndgameScore()) & 0xFFFFFFFFL)
+                | ((long) boardState.getPhase() << 32));
+        segment.set(JAVA_LONG_UNALIGNED, base + STATE, boardState.getSide()
+                | ((long) boardState.castlingRights() << CASTLING_SHIFT)
+                | ((long) Long.numberOfTrailingZeros(boardState.getEnPassantTarget()) << EN_PASSANT_SHIFT)
+                | ((long) boardState.getHalfMoveCounter() << HALF_MOVE_SHIFT)
+                | ((long) boardState.getFullMoveCounter() << FULL_MOVE_SHIFT));
+        segment.set(JAVA_INT_UNALIGNED, base + PLY, 0);
+        attackInfoValid = false;
+    }
+
+    /* ==========================================================================================
+                                              make move
+     ========================================================================================== */
+
+    /**
+     * Executes a move on the board.
+     *
+     * @param move the 16-bit encoded move (see {@link Move})
+     */
+    public void makeMove(short move) {
+
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        int moveType = Move.getMoveType(move);
+
+        long state = segment.get(JAVA_LONG_UNALIGNED, base + STATE);
+        long hash = segment.get(JAVA_LONG_UNALIGNED, base + HASH);
+        long pawnKey = segment.get(JAVA_LONG_UNALIGNED, base + PAWN_KEY);
+        long materialKey = segment.get(JAVA_LONG_UNALIGNED, base + MATERIAL_KEY);
+        long eval = segment.get(JAVA_LONG_UNALIGNED, base + EVAL);
+        int ply = segment.get(JAVA_INT_UNALIGNED, base + PLY);
+
+        int side = (int) (state & 1);
+        int oppSide = 1 ^ side;
+        int castlingRights = (int) (state >>> CASTLING_SHIFT) & 0xF;
+        int enPassantSquare = (int) (state >>> EN_PASSANT_SHIFT) & 0x7F;
+        int halfMoveCounter = (int) (state >>> HALF_MOVE_SHIFT) & 0xFFFF;
+        int fullMoveCounter = (int) (state >>> FULL_MOVE_SHIFT);
+
+        long fromMask = 1L << from;
+        long toMask = 1L << to;
+
+        //the fields are accessed directly instead of through the accessors: the segment accesses are always
+        //inlined, the accessors are not on the colder paths, and a call costs more than the access itself
+        long pieceBBs = base + PIECE_BB;
+        long occupancies = base + OCCUPANCY;
+        long mailbox = base + MAILBOX;
+
+        int movingPiece = segment.get(JAVA_BYTE, mailbox + from);
+        int capturedPiece = EMPTY_SQUARE;
+
+        //removes side, the previous castling rights and the previous en passant square from the hash
+        long newHash = hash ^ SIDE_KEY ^ CASTLING_KEYS[castlingRights] ^ EN_PASSANT_KEYS[enPassantSquare];
+        long newPawnKey = pawnKey;
+        long newMaterialKey = materialKey;
+        int psqtScore = (int) eval;
+        int phase = (int) (eval >>> 32);
+        enPassantSquare = BOARD_SIZE;
+
+        //pawn moves and captures reset the counter below
+        halfMoveCounter = (halfMoveCounter + 1) * HALF_MOVE_RESET_MASK[movingPiece];
+
+        if ((moveType & CAPTURE) != 0) {
+
+            int capturedSquare = to;
+
+            if (moveType == EP_CAPTURE) capturedSquare = (side == WHITE)? to - 8 : to + 8;
+
+            long capturedMask = 1L << capturedSquare;
+            capturedPiece = segment.get(JAVA_BYTE, mailbox + capturedSquare);
+
+            long capturedBB = pieceBBs + (long) capturedPiece * Long.BYTES;
+            long oppOcc = occupancies + (long) oppSide * Long.BYTES;
+
+            segment.set(JAVA_LONG_UNALIGNED, capturedBB, segment.get(JAVA_LONG_UNALIGNED, capturedBB) ^ capturedMask);
+            segment.set(JAVA_LONG_UNALIGNED, oppOcc, segment.get(JAVA_LONG_UNALIGNED, oppOcc) ^ capturedMask);
+            segment.set(JAVA_BYTE, mailbox + capturedSquare, (byte) EMPTY_SQUARE);
+
+            long capturedKey = PIECE_SQUARE_KEYS[capturedPiece * BOARD_SIZE + capturedSquare];
+            newHash ^= capturedKey;
+            newPawnKey ^= capturedKey & PAWN_KEY_MASK[capturedPiece];
+            newMaterialKey -= MATERIAL_KEY_UNIT[capturedPiece];
+            psqtScore -= PIECE_SQUARE_SCORES[capturedPiece * BOARD_SIZE + capturedSquare];
+            phase -= PHASE_WEIGHTS[capturedPiece];
+
+            halfMoveCounter = 0;
+        }
+
+        //the piece arriving on the target square, different from the moving one for promotions
+        int arrivingPiece = ((moveType & PROMOTION) != 0)? side + Move.getPromotedPieceBase(moveType) : movingPiece;
+
+        long movingBB = pieceBBs + (long) movingPiece * Long.BYTES;
+        long arrivingBB = pieceBBs + (long) arrivingPiece * Long.BYTES;
+        long myOcc = occupancies + (long) side * Long.BYTES;
+
+        segment.set(JAVA_LONG_UNALIGNED, movingBB, segment.get(JAVA_LONG_UNALIGNED, movingBB) ^ fromMask);
+        segment.set(JAVA_LONG_UNALIGNED, arrivingBB, segment.get(JAVA_LONG_UNALIGNED, arrivingBB) ^ toMask);
+        segment.set(JAVA_LONG_UNALIGNED, myOcc, segment.get(JAVA_LONG_UNALIGNED, myOcc) ^ (fromMask | toMask));
+        segment.set(JAVA_BYTE, mailbox + from, (byte) EMPTY_SQUARE);
+        segment.set(JAVA_BYTE, mailbox + to, (byte) arrivingPiece);
+
+        long fromKey = PIECE_SQUARE_KEYS[movingPiece * BOARD_SIZE + from];
+        long toKey = PIECE_SQUARE_KEYS[arrivingPiece * BOARD_SIZE + to];
+
+        newHash ^= fromKey ^ toKey;
+        newPawnKey ^= (fromKey & PAWN_KEY_MASK[movingPiece]) ^ (toKey & PAWN_KEY_MASK[arrivingPiece]);
+        psqtScore += PIECE_SQUARE_SCORES[arrivingPiece * BOARD_SIZE + to] - PIECE_SQUARE_SCORES[movingPiece * BOARD_SIZE + from];
+
+        if (arrivingPiece != movingPiece) {
+            newMaterialKey += MATERIAL_KEY_UNIT[arrivingPiece] - MATERIAL_KEY_UNIT[movingPiece];
+            phase += PHASE_WEIGHTS[arrivingPiece] - PHASE_WEIGHTS[movingPiece];
+        }
+
+        switch (moveType) {
+
+            case DOUBLE_PAWN_PUSH -> {
+                enPassantSquare = (from + to) >>> 1;
+                newHash ^= EN_PASSANT_KEYS[enPassantSquare];
+            }
+
+            case KING_SIDE_CASTLE -> {
+                newHash ^= moveRook(side, to + 1, to - 1);
+                psqtScore += rookScore(side, to + 1, to - 1);
+            }
+
+            case QUEEN_SIDE_CASTLE -> {
+                newHash ^= moveRook(side, to - 2, to + 1);
+                psqtScore += rookScore(side, to - 2, to + 1);
+            }
+        }
+
+        castlingRights &= CASTLING_MASK_BY_SQUARE[from] & CASTLING_MASK_BY_SQUARE[to];
+        newHash ^= CASTLING_KEYS[castlingRights];
+
+        fullMoveCounter += side;
+
+        long entry = base + HISTORY + ply * HISTORY_ENTRY_SIZE;
+
+        segment.set(JAVA_LONG_UNALIGNED, entry + HISTORY_HASH, hash);
+        segment.set(JAVA_LONG_UNALIGNED, entry + HISTORY_RECORD, (state & 0xFFFFFFFFL)
+                | ((move & 0xFFFFL) << MOVE_SHIFT)
+                | ((long) (capturedPiece + 1) << CAPTURE_SHIFT));
+        segment.set(JAVA_LONG_UNALIGNED, entry + HISTORY_PAWN_KEY, pawnKey);
+        segment.set(JAVA_LONG_UNALIGNED, entry + HISTORY_MATERIAL_KEY, materialKey);
+        segment.set(JAVA_LONG_UNALIGNED, entry + HISTORY_EVAL, eval);
+
+        segment.set(JAVA_LONG_UNALIGNED, base + HASH, newHash);
+        segment.set(JAVA_LONG_UNALIGNED, base + PAWN_KEY, newPawnKey);
+        segment.set(JAVA_LONG_UNALIGNED, base + MATERIAL_KEY, newMaterialKey);
+        segment.set(JAVA_LONG_UNALIGNED, base + EVAL, (psqtScore & 0xFFFFFFFFL) | ((long) phase << 32));
+        segment.set(JAVA_LONG_UNALIGNED, base + STATE, oppSide
+                | ((long) castlingRights << CASTLING_SHIFT)
+                | ((long) enPassantSquare << EN_PASSANT_SHIFT)
+                | ((long) halfMoveCounter << HALF_MOVE_SHIFT)
+                | ((long) fullMoveCounter << FULL_MOVE_SHIFT));
+        segment.set(JAVA_INT_UNALIGNED, base + PLY, ply + 1);
+
+        attackInfoValid = false;
+    }
+
+    /* ==========================================================================================
+                                             unmake move
+     ========================================================================================== */
+
+    /**
+     * Restores the board to the position before the last move was made.
+     */
+    public void unmakeMove() {
+
+        int ply = segment.get(JAVA_INT_UNALIGNED, base + PLY) - 1;
+        long entry = base + HISTORY + ply * HISTORY_ENTRY_SIZE;
+
+        long record = segment.get(JAVA_LONG_UNALIGNED, entry + HISTORY_RECORD);
+        long state = segment.get(JAVA_LONG_UNALIGNED, base + STATE);
+
+        short move = (short) (record >>> MOVE_SHIFT);
+        int capturedPiece = (int) (record >>> CAPTURE_SHIFT & 0xF) - 1;
+
+        int side = 1 ^ (int) (state & 1);
+        int oppSide = 1 ^ side;
+        int fullMoveCounter = (int) (state >>> FULL_MOVE_SHIFT) - side;
+
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        int moveType = Move.getMoveType(move);
+
+        long fromMask = 1L << from;
+        long toMask = 1L << to;
+
+        //direct field accesses, see makeMove
+        long pieceBBs = base + PIECE_BB;
+        long occupancies = base + OCCUPANCY;
+        long mailbox = base + MAILBOX;
+
+        int arrivingPiece = segment.get(JAVA_BYTE, mailbox + to);
+        int movingPiece = ((moveType & PROMOTION) != 0)? side : arrivingPiece;
+
+        long arrivingBB = pieceBBs + (long) arrivingPiece * Long.BYTES;
+        long movingBB = pieceBBs + (long) movingPiece * Long.BYTES;
+        long myOcc = occupancies + (long) side * Long.BYTES;
+
+        segment.set(JAVA_LONG_UNALIGNED, arrivingBB, segment.get(JAVA_LONG_UNALIGNED, arrivingBB) ^ toMask);
+        segment.set(JAVA_LONG_UNALIGNED, movingBB, segment.get(JAVA_LONG_UNALIGNED, movingBB) ^ fromMask);
+        segment.set(JAVA_LONG_UNALIGNED, myOcc, segment.get(JAVA_LONG_UNALIGNED, myOcc) ^ (fromMask | toMask));
+        segment.set(JAVA_BYTE, mailbox + to, (byte) EMPTY_SQUARE);
+        segment.set(JAVA_BYTE, mailbox + from, (byte) movingPiece);
+
+        if (capturedPiece != EMPTY_SQUARE) {
+
+            int capturedSquare = to;
+
+            if (moveType == EP_CAPTURE) capturedSquare = (side == WHITE)? to - 8 : to + 8;
+
+            long capturedMask = 1L << capturedSquare;
+            long capturedBB = pieceBBs + (long) capturedPiece * Long.BYTES;
+            long oppOcc = occupancies + (long) oppSide * Long.BYTES;
+
+            segment.set(JAVA_LONG_UNALIGNED, capturedBB, segment.get(JAVA_LONG_UNALIGNED, capturedBB) ^ capturedMask);
+            segment.set(JAVA_LONG_UNALIGNED, oppOcc, segment.get(JAVA_LONG_UNALIGNED, oppOcc) ^ capturedMask);
+            segment.set(JAVA_BYTE, mailbox + capturedSquare, (byte) capturedPiece);
+        }
+
+        switch (moveType) {
+            case KING_SIDE_CASTLE -> moveRook(side, to - 1, to + 1);
+            case QUEEN_SIDE_CASTLE -> moveRook(side, to + 1, to - 2);
+        }
+
+        segment.set(JAVA_LONG_UNALIGNED, base + HASH, segment.get(JAVA_LONG_UNALIGNED, entry + HISTORY_HASH));
+        segment.set(JAVA_LONG_UNALIGNED, base + PAWN_KEY, segment.get(JAVA_LONG_UNALIGNED, entry + HISTORY_PAWN_KEY));
+        segment.set(JAVA_LONG_UNALIGNED, base + MATERIAL_KEY, segment.get(JAVA_LONG_UNALIGNED, entry + HISTORY_MATERIAL_KEY));
+        segment.set(JAVA_LONG_UNALIGNED, base + EVAL, segment.get(JAVA_LONG_UNALIGNED, entry + HISTORY_EVAL));
+        segment.set(JAVA_LONG_UNALIGNED, base + STATE, (record & 0xFFFFFFFFL) | ((long) fullMoveCounter << FULL_MOVE_SHIFT));
+        segment.set(JAVA_INT_UNALIGNED, base + PLY, ply);
+
+        attackInfoValid = false;
+    }
+
+    //the change of the packed score when a castling rook moves
+    private static int rookScore(int side, int rookFrom, int rookTo) {
+        return PIECE_SQUARE_SCORES[(W_ROOK + side) * BOARD_SIZE + rookTo] - PIECE_SQUARE_SCORES[(W_ROOK + side) * BOARD_SIZE + rookFrom];
+    }
+
+    private long moveRook(int side, int rookFrom, int rookTo) {
+
+        int movingRook = W_ROOK + side;
+        long moveMask = 1L << rookFrom | 1L << rookTo;
+
+        setPieceBB(movingRook, getPieceBB(movingRook) ^ moveMask);
+        setOccupancy(side, getColorOccupancy(side) ^ moveMask);
+        setPieceAt(rookFrom, EMPTY_SQUARE);
+        setPieceAt(rookTo, movingRook);
+
+        return PIECE_SQUARE_KEYS[movingRook * BOARD_SIZE + rookFrom] ^ PIECE_SQUARE_KEYS[movingRook * BOARD_SIZE + rookTo];
+    }
+
+    private void setPieceBB(int piece, long pieceBB) {
+        segment.set(JAVA_LONG_UNALIGNED, base + PIECE_BB + (long) piece * Long.BYTES, pieceBB);
+    }
+
+    private void setOccupancy(int color, long occupancy) {
+        segment.set(JAVA_LONG_UNALIGNED, base + OCCUPANCY + (long) color * Long.BYTES, occupancy);
+    }
+
+    private void setPieceAt(int square, int piece) {
+        segment.set(JAVA_BYTE, base + MAILBOX + square, (byte) piece);
+    }
+
+    /* ==========================================================================================
+                                              null move
+     ========================================================================================== */
+
+    /**
+     * Passes the turn to the opponent without moving a piece, like {@link BoardState#makeNullMove()}.
+     * The null move is a repetition barrier and the half move counter keeps counting.
+     * Must be undone with {@link #unmakeNullMove()}.
+     */
+    public void makeNullMove() {
+
+        long state = segment.get(JAVA_LONG_UNALIGNED, base + STATE);
+        long hash = segment.get(JAVA_LONG_UNALIGNED, base + HASH);
+        int ply = segment.get(JAVA_INT_UNALIGNED, base + PLY);
+
+        int side = (int) (state & 1);
+        int castlingRights = (int) (state >>> CASTLING_SHIFT) & 0xF;
+        int enPassantSquare = (int) (state >>> EN_PASSANT_SHIFT) & 0x7F;
+        int halfMoveCounter = (int) (state >>> HALF_MOVE_SHIFT) & 0xFFFF;
+        int fullMoveCounter = (int) (state >>> FULL_MOVE_SHIFT);
+
+        long entry = base + HISTORY + ply * HISTORY_ENTRY_SIZE;
+
+        //the keys and the score do not change, so only the hash and the state are saved
+        segment.set(JAVA_LONG_UNALIGNED, entry + HISTORY_HASH, hash);
+        segment.set(JAVA_LONG_UNALIGNED, entry + HISTORY_RECORD, (state & 0xFFFFFFFFL) | ((long) NULL_MOVE << MOVE_SHIFT));
+
+        segment.set(JAVA_LONG_UNALIGNED, base + HASH, hash ^ SIDE_KEY ^ EN_PASSANT_KEYS[enPassantSquare]);
+        segment.set(JAVA_LONG_UNALIGNED, base + STATE, (1 ^ side)
+                | ((long) castlingRights << CASTLING_SHIFT)
+                | ((long) BOARD_SIZE << EN_PASSANT_SHIFT)
+                | ((long) (halfMoveCounter + 1) << HALF_MOVE_SHIFT)
+                | ((long) (fullMoveCounter + side) << FULL_MOVE_SHIFT));
+        segment.set(JAVA_INT_UNALIGNED, base + PLY, ply + 1);
+
+        attackInfoValid = false;
+    }
+
+    /**
+     * Restores the board to the position before the last {@link #makeNullMove()}.
+     */
+    public void unmakeNullMove() {
+
+        int ply = segment.get(JAVA_INT_UNALIGNED, base + PLY) - 1;
+        long entry = base + HISTORY + ply * HISTORY_ENTRY_SIZE;
+
+        long record = segment.get(JAVA_LONG_UNALIGNED, entry + HISTORY_RECORD);
+        long state = segment.get(JAVA_LONG_UNALIGNED, base + STATE);
+
+        int fullMoveCounter = (int) (state >>> FULL_MOVE_SHIFT) - (1 ^ (int) (state & 1));
+
+        segment.set(JAVA_LONG_UNALIGNED, base + HASH, segment.get(JAVA_LONG_UNALIGNED, entry + HISTORY_HASH));
+        segment.set(JAVA_LONG_UNALIGNED, base + STATE, (record & 0xFFFFFFFFL) | ((long) fullMoveCounter << FULL_MOVE_SHIFT));
+        segment.set(JAVA_INT_UNALIGNED, base + PLY, ply);
+
+        attackInfoValid = false;
+    }
+
+    /* ==========================================================================================
+                                            draw detection
+     ========================================================================================== */
+
+    /**
+     * Checks whether the current position occurred before, like {@link BoardState#isRepetition()}.
+     * <p>
+     * Only the positions since the position was loaded into the slot are known, so a repetition of a
+     * position from before {@link #set(BoardState)} is not found.
+     *
+     * @return {@code true} if the zobrist hash of the current position is found earlier in the history
+     */
+    public boolean isRepetition() {
+
+        int ply = getPly();
+        long hash = getZobristHash();
+
+        int window = Math.min(getHalfMoveCounter(), ply);
+
+        for (int distance = 1; distance <= window; distance++) {
+
+            long entry = base + HISTORY + (ply - distance) * HISTORY_ENTRY_SIZE;
+
+            //no position before a null move counts, the null move entries are the repetition barriers
+            if ((short) (segment.get(JAVA_LONG_UNALIGNED, entry + HISTORY_RECORD) >>> MOVE_SHIFT) == NULL_MOVE) return false;
+
+            //a position cannot repeat after 2 plies: both sides would have to pass
+            if ((distance & 1) == 0 && distance >= 4 && segment.get(JAVA_LONG_UNALIGNED, entry + HISTORY_HASH) == hash) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks whether the current position is a draw by repetition, the fifty move rule or insufficient
+     * material, like {@link BoardState#isDraw(int)}. As in {@link #isRepetition()}, only the positions
+     * since {@link #set(BoardState)} are searched for repetitions.
+     *
+     * @param ply the distance of the current position from the search root
+     * @return {@code true} if the position is a draw
+     */
+    public boolean isDraw(int ply) {
+
+        if (getHalfMoveCounter() >= 100 || isInsufficientMaterial()) return true;
+
+        int curPly = getPly();
+        long hash = getZobristHash();
+
+        int window = Math.min(getHalfMoveCounter(), curPly);
+        boolean repeatedBeforeRoot = false;
+
+        for (int distance = 1; distance <= window; distance++) {
+
+            long entry = base + HISTORY + (curPly - distance) * HISTORY_ENTRY_SIZE;
+
+            if ((short) (segment.get(JAVA_LONG_UNALIGNED, entry + HISTORY_RECORD) >>> MOVE_SHIFT) == NULL_MOVE) return false;
+
+            if ((distance & 1) != 0 || distance < 4 || segment.get(JAVA_LONG_UNALIGNED, entry + HISTORY_HASH) != hash) continue;
+
+            if (distance < ply || repeatedBeforeRoot) return true;
+            repeatedBeforeRoot = true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks whether neither side has enough material left to mate, like {@link BoardState#isInsufficientMaterial()}.
+     *
+     * @return {@code true} if no sequence of legal moves can lead to mate
+     */
+    public boolean isInsufficientMaterial() {
+
+        if ((segment.get(JAVA_LONG_UNALIGNED, base + MATERIAL_KEY) & PAWNS_ROOKS_QUEENS_MASK) != 0) return false;
+
+        long bishops = getPieceBB(W_BISHOP) | getPieceBB(B_BISHOP);
+        long minors = bishops | getPieceBB(W_KNIGHT) | getPieceBB(B_KNIGHT);
+
+        if (Long.bitCount(minors) <= 1) return true;
+
+        return minors == bishops && ((bishops & LIGHT_SQUARES) == 0 || (bishops & DARK_SQUARES) == 0);
+    }
+
+    /* ==========================================================================================
+                                            state getters
+     ========================================================================================== */
+
+    /**
+     * Gets the number of moves made on top of the loaded position.
+     *
+     * @return the current ply
+     */
+    public int getPly() {
+        return segment.get(JAVA_INT_UNALIGNED, base + PLY);
+    }
+
+    /**
+     * Retrieves the piece type currently residing on a specific square.
+     *
+     * @param square the square index (0-63)
+     * @return the piece identifier (e.g., {@code W_PAWN}), or {@code EMPTY_SQUARE}
+     */
+    public int pieceAt(int square) {
+        return segment.get(JAVA_BYTE, base + MAILBOX + square);
+    }
+
+    /**
+     * Retrieves the bitboard for a specific piece type.
+     *
+     * @param piece the piece index (e.g., {@code W_PAWN}, {@code B_KING})
+     * @return the bitboard for that piece
+     */
+    public long getPieceBB(int piece) {
+        return segment.get(JAVA_LONG_UNALIGNED, base + PIECE_BB + (long) piece * Long.BYTES);
+    }
+
+    /**
+     * Retrieves the occupancy mask for a specific color.
+     *
+     * @param color The side to query (0) = WHITE | (1) = BLACK.
+     * @return A bitboard of all pieces belonging to the specified color.
+     */
+    public long getColorOccupancy(int color) {
+        return segment.get(JAVA_LONG_UNALIGNED, base + OCCUPANCY + (long) color * Long.BYTES);
+    }
+
+    /**
+     * Retrieves the occupancy mask for the entire board.
+     *
+     * @return A bitboard of all pieces.
+     */
+    public long getOccupancy() {
+        return getColorOccupancy(WHITE) | getColorOccupancy(BLACK);
+    }
+
+    /**
+     * Gets the side currently to move.
+     *
+     * @return {@code WHITE} (0) or {@code BLACK} (1)
+     */
+    public int getSide() {
+        return (int) (segment.get(JAVA_LONG_UNALIGNED, base + STATE) & 1);
+    }
+
+    /**
+     * Retrieves the square currently available for an en passant capture.
+     *
+     * @return a bitboard with the target square set, or 0 if en passant is not available
+     */
+    public long getEnPassantTarget() {
+        int enPassantSquare = (int) (segment.get(JAVA_LONG_UNALIGNED, base + STATE) >>> EN_PASSANT_SHIFT) & 0x7F;
+        return (enPassantSquare == BOARD_SIZE)? 0 : 1L << enPassantSquare;
+    }
+
+    /**
+     * Retrieves the current castling rights bitmask.
+     *
+     * @return a 4-bit integer in the same layout as {@link BoardState#castlingRights()}
+     */
+    public int castlingRights() {
+        return (int) (segment.get(JAVA_LONG_UNALIGNED, base + STATE) >>> CASTLING_SHIFT) & 0xF;
+    }
+
+    /**
+     * Retrieves the zobrist hash of the current position.
+     *
+     * @return the 64-bit zobrist hash
+     */
+    public long getZobristHash() {
+        return segment.get(JAVA_LONG_UNALIGNED, base + HASH);
+    }
+
+    /**
+     * Retrieves the number of half moves since the last capture or pawn move.
+     *
+     * @return the half move counter
+     */
+    public int getHalfMoveCounter() {
+        return (int) (segment.get(JAVA_LONG_UNALIGNED, base + STATE) >>> HALF_MOVE_SHIFT) & 0xFFFF;
+    }
+
+    /**
+     * Retrieves the number of the current full move.
+     *
+     * @return the full move counter
+     */
+    public int getFullMoveCounter() {
+        return (int) (segment.get(JAVA_LONG_UNALIGNED, base + STATE) >>> FULL_MOVE_SHIFT);
+    }
+
+    /**
+     * Retrieves the pawn key of the current position, equal to {@link BoardState#getPawnKey()}.
+     *
+     * @return the 64-bit pawn key
+     */
+    public long getPawnKey() {
+        return segment.get(JAVA_LONG_UNALIGNED, base + PAWN_KEY);
+    }
+
+    /**
+     * Retrieves the material key of the current position, equal to {@link BoardState#getMaterialKey()}.
+     *
+     * @return the material key
+     */
+    public long getMaterialKey() {
+        return segment.get(JAVA_LONG_UNALIGNED, base + MATERIAL_KEY);
+    }
+
+    /* ==========================================================================================
+                                              evaluation
+     ========================================================================================== */
+
+    /**
+     * Blends the midgame and endgame scores by the game phase, equal to {@link BoardState#getTaperedScore()}.
+     * O(1): the score is kept up to date by make/unmake.
+     *
+     * @return the tapered score from the point of view of the side to move
+     */
+    public int getTaperedScore() {
+
+        long eval = segment.get(JAVA_LONG_UNALIGNED, base + EVAL);
+
+        int psqtScore = (int) eval;
+        int phase = (int) (eval >>> 32);
+
+        //promotions can push the phase past the starting value
+        int midgameWeight = Math.min(phase, MAX_PHASE);
+
+        int score = (midgame(psqtScore) * midgameWeight + endgame(psqtScore) * (MAX_PHASE - midgameWeight)) / MAX_PHASE;
+
+        return (getSide() == WHITE)? score : -score;
+    }
+
+    /* ==========================================================================================
+                                             attack info
+     ========================================================================================== */
+
+    /**
+     * Retrieves every square attacked by the opponent of the side to move, see {@link BoardState#getOppAttacks()}.
+     *
+     * @return a bitboard of all squares attacked (or defended) by the opponent
+     */
+    public long getOppAttacks() {
+        if (!attackInfoValid) computeAttackInfo();
+        return oppAttacks;
+    }
+
+    /**
+     * Retrieves the squares the king of the side to move must not step on, see {@link BoardState#getKingDanger()}.
+     *
+     * @return a bitboard of all squares unsafe for the king of the side to move
+     */
+    public long getKingDanger() {
+        if (!attackInfoValid) computeAttackInfo();
+        return kingDanger;
+    }
+
+    /**
+     * Retrieves the opponent pieces currently giving check to the side to move.
+     *
+     * @return a bitboard of all checking pieces, 0 if the side to move is not in check
+     */
+    public long getCheckers() {
+        if (!attackInfoValid) computeAttackInfo();
+        return checkers;
+    }
+
+    /**
+     * Retrieves the pieces of the side to move that are absolutely pinned to their king.
+     *
+     * @return a bitboard of all pinned pieces
+     */
+    public long getPinned() {
+        if (!attackInfoValid) computeAttackInfo();
+        return pinned;
+    }
+
+    private void computeAttackInfo() {
+
+        int side = getSide();
+        int oppSide = 1 ^ side;
+
+        long myOcc = getColorOccupancy(side);
+        long fullOcc = myOcc | getColorOccupancy(oppSide);
+
+        long king = getPieceBB(W_KING + side);
+        int kingSq = Long.numberOfTrailingZeros(king);
+
+        long oppPawns = getPieceBB(W_PAWN + oppSide);
+        long oppKnights = getPieceBB(W_KNIGHT + oppSide);
+        long oppBishopsQueens = getPieceBB(W_BISHOP + oppSide) | getPieceBB(W_QUEEN + oppSide);
+        long oppRooksQueens = getPieceBB(W_ROOK + oppSide) | getPieceBB(W_QUEEN + oppSide);
+
+        oppAttacks = Attacks.allAtk(oppSide, oppPawns, oppKnights, oppBishopsQueens, oppRooksQueens, getPieceBB(W_KING + oppSide), fullOcc);
+        checkers = Attacks.checkers(kingSq, side, oppPawns, oppKnights, oppBishopsQueens, oppRooksQueens, fullOcc);
+        kingDanger = Attacks.kingDanger(oppAttacks, checkers, king, oppBishopsQueens, oppRooksQueens, fullOcc);
+        pinned = Attacks.pinnedPieces(kingSq, myOcc, oppBishopsQueens, oppRooksQueens, fullOcc);
+
+        attackInfoValid = true;
+    }
+}
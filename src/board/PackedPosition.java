@@ -0,0 +1,92 @@
+package board;
+
+/**
+ * Fixed-size packed encoding of a position, written by {@link BoardState#encodeTo(long[], int)} and read by
+ * {@link BoardState#decodeFrom(long[], int)}.
+ * <p>
+ * A packed position is {@link #SIZE} longs (32 bytes), so any number of them fit in a flat {@code long[]}:
+ * <ul>
+ * <li>[0]: the occupancy of the board</li>
+ * <li>[1-2]: a 4-bit code per occupied square, in square order, starting at the lowest bits of [1].
+ * Codes 0-11 are the piece ids (e.g. {@code W_QUEEN}), the spare codes fold in the rest of the state:
+ * {@link #EN_PASSANT_PAWN}, {@link #CASTLING_WHITE_ROOK}, {@link #CASTLING_BLACK_ROOK} and
+ * {@link #BLACK_KING_TO_MOVE}</li>
+ * <li>[3]: bits 0-15 half move counter, bits 16-47 full move counter</li>
+ * </ul>
+ * The encoding is canonical: the same position always gives the same longs, so packed positions are compared
+ * and hashed directly, with {@link #equals(long[], int, long[], int)} and {@link #hash(long[], int)},
+ * e.g. for dedup sets or primitive hash maps. Both look at [0-2] only: positions that differ only in their
+ * move counters are the same position.
+ * <p>
+ * A castling right is stored on its rook, so a right whose rook is not on its corner square
+ * (only possible in a hand-written FEN) is dropped.
+ */
+public class PackedPosition {
+
+    //private constructor to ensure no Object creation
+    private PackedPosition(){}
+
+    /**
+     * Number of longs of a packed position.
+     */
+    public static final int SIZE = 4;
+
+    /**
+     * A pawn that just made a double push and can be captured en passant. It is white on the 4th rank,
+     * black on the 5th, and the en passant target is the square behind it.
+     */
+    public static final int EN_PASSANT_PAWN = 12;
+
+    /**
+     * A white rook on a1 or h1 that can still castle.
+     */
+    public static final int CASTLING_WHITE_ROOK = 13;
+
+    /**
+     * A black rook on a8 or h8 that can still castle.
+     */
+    public static final int CASTLING_BLACK_ROOK = 14;
+
+    /**
+     * The black king, with black to move. Without it, white is to move.
+     */
+    public static final int BLACK_KING_TO_MOVE = 15;
+
+    /**
+     * Compares two packed positions, ignoring the move counters.
+     *
+     * @param a the array holding the first position
+     * @param aOff the index of the first position in {@code a}
+     * @param b the array holding the second position
+     * @param bOff the index of the second position in {@code b}
+     * @return {@code true} if both encode the same position
+     */
+    public static boolean equals(long[] a, int aOff, long[] b, int bOff) {
+        return a[aOff] == b[bOff] && a[aOff + 1] == b[bOff + 1] && a[aOff + 2] == b[bOff + 2];
+    }
+
+    /**
+     * Hashes a packed position, ignoring the move counters.
+     *
+     * @param src the array holding the position
+     * @param off the index of the position in {@code src}
+     * @return a well mixed 64-bit hash, use the low bits to index a table
+     */
+    public static long hash(long[] src, int off) {
+
+        long hash = mix(src[off]);
+        hash = mix(hash ^ src[off + 1]);
+        hash = mix(hash ^ src[off + 2]);
+
+        return hash;
+    }
+
+    //the murmur3 64-bit finalizer: every input bit affects every output bit
+    private static long mix(long value) {
+
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+
+        return value ^ (value >>> 33);
+    }
+}
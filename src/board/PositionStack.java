@@ -0,0 +1,402 @@
+package board;
+
+import static constants.BoardConstants.*;
+import static constants.Zobrist.*;
+
+/**
+ * Copy-make alternative to the make/unmake of {@link BoardState}.
+ * <p>
+ * Every position is a compact value of {@link #POSITION_SIZE} longs:
+ * <ul>
+ * <li>[0-11]: the piece bitboards, indexed by piece (e.g. {@code W_QUEEN})</li>
+ * <li>[12-13]: the occupancy of white and black</li>
+ * <li>[14]: bit 0 side to move, bits 1-4 castling rights, bits 8-14 en passant square (64 if none),
+ * bits 16-31 half move counter, bits 32-63 full move counter</li>
+ * <li>[15]: the zobrist hash</li>
+ * </ul>
+ * The stack holds one such slot per ply in a single preallocated {@code long[]}. {@link #makeMove(short)}
+ * copies the current slot into the next one and applies the move there, {@link #unmakeMove()} only moves
+ * the ply pointer back. Nothing is ever undone, so no history is needed, and every ply's position stays
+ * readable: {@link #set(PositionStack)} hands the current position of one stack to another as its root,
+ * e.g. to split a tree between threads.
+ * <p>
+ * The stack is searched with {@link MoveGen#legalMoves(PositionStack, short[])}, the attack information
+ * is computed on demand like on {@link BoardState}.
+ * <p>
+ * Not thread-safe: one instance per thread.
+ */
+public class PositionStack {
+
+    /**
+     * Number of longs per position.
+     */
+    public static final int POSITION_SIZE = 16;
+
+    private static final int OCCUPANCY = 12;
+    private static final int STATE = 14;
+    private static final int HASH = 15;
+
+    private static final int CASTLING_SHIFT = 1;
+    private static final int EN_PASSANT_SHIFT = 8;
+    private static final int HALF_MOVE_SHIFT = 16;
+    private static final int FULL_MOVE_SHIFT = 32;
+
+    private final long[] slots;
+
+    //index of the first long of the current position
+    private int base = 0;
+
+    //the attack information of the current position, see BoardState
+    private boolean attackInfoValid = false;
+    private long oppAttacks;
+    private long kingDanger;
+    private long checkers;
+    private long pinned;
+
+    /**
+     * Creates a stack for a search of up to the specified depth.
+     *
+     * @param maxPly the maximum number of moves made on top of the root position
+     */
+    public PositionStack(int maxPly) {
+        this.slots = new long[(maxPly + 1) * POSITION_SIZE];
+    }
+
+    /**
+     * Loads the specified board as root position (ply 0).
+     *
+     * @param boardState the position to load
+     */
+    public void set(BoardState boardState) {
+
+        base = 0;
+
+        for (int piece = 0; piece < DISTINCT_PIECES_COUNT; piece++) slots[piece] = boardState.getPieceBB(piece);
+
+        slots[OCCUPANCY + WHITE] = boardState.getColorOccupancy(WHITE);
+        slots[OCCUPANCY + BLACK] = boardState.getColorOccupancy(BLACK);
+
+        slots[STATE] = boardState.getSide()
+                | ((long) boardState.castlingRights() << CASTLING_SHIFT)
+                | ((long) Long.numberOfTrailingZeros(boardState.getEnPassantTarget()) << EN_PASSANT_SHIFT)
+                | ((long) boardState.getHalfMoveCounter() << HALF_MOVE_SHIFT)
+                | ((long) boardState.getFullMoveCounter() << FULL_MOVE_SHIFT);
+
+        slots[HASH] = boardState.getZobristHash();
+
+        attackInfoValid = false;
+    }
+
+    /**
+     * Loads the current position of another stack as root position (ply 0).
+     *
+     * @param parent the stack to copy the position from, left unchanged
+     */
+    public void set(PositionStack parent) {
+
+        base = 0;
+        System.arraycopy(parent.slots, parent.base, slots, 0, POSITION_SIZE);
+
+        attackInfoValid = false;
+    }
+
+    /* ==========================================================================================
+                                            copy make
+     ========================================================================================== */
+
+    /**
+     * Copies the current position into the next slot and executes the move there.
+     *
+     * @param move the 16-bit encoded move (see {@link Move})
+     */
+    public void makeMove(short move) {
+
+        System.arraycopy(slots, base, slots, base + POSITION_SIZE, POSITION_SIZE);
+        base += POSITION_SIZE;
+
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        int moveType = Move.getMoveType(move);
+
+        long state = slots[base + STATE];
+
+        int side = (int) (state & 1);
+        int oppSide = 1 ^ side;
+        int castlingRights = (int) (state >>> CASTLING_SHIFT) & 0xF;
+        int enPassantSquare = (int) (state >>> EN_PASSANT_SHIFT) & 0x7F;
+        int halfMoveCounter = (int) (state >>> HALF_MOVE_SHIFT) & 0xFFFF;
+        int fullMoveCounter = (int) (state >>> FULL_MOVE_SHIFT);
+
+        long fromMask = 1L << from;
+        long toMask = 1L << to;
+
+        int movingPiece = pieceOf(side, fromMask);
+
+        //removes side, the previous castling rights and the previous en passant square from the hash
+        long hash = slots[base + HASH] ^ SIDE_KEY ^ CASTLING_KEYS[castlingRights] ^ EN_PASSANT_KEYS[enPassantSquare];
+        enPassantSquare = BOARD_SIZE;
+
+        //pawn moves and captures reset the counter below
+        halfMoveCounter = (halfMoveCounter + 1) * HALF_MOVE_RESET_MASK[movingPiece];
+
+        if ((moveType & CAPTURE) != 0) {
+
+            int capturedSquare = to;
+
+            if (moveType == EP_CAPTURE) capturedSquare = (side == WHITE)? to - 8 : to + 8;
+
+            long capturedMask = 1L << capturedSquare;
+            int capturedPiece = pieceOf(oppSide, capturedMask);
+
+            slots[base + capturedPiece] ^= capturedMask;
+            slots[base + OCCUPANCY + oppSide] ^= capturedMask;
+            hash ^= PIECE_SQUARE_KEYS[capturedPiece * BOARD_SIZE + capturedSquare];
+
+            halfMoveCounter = 0;
+        }
+
+        //the piece arriving on the target square, different from the moving one for promotions
+        int arrivingPiece = ((moveType & PROMOTION) != 0)? side + Move.getPromotedPieceBase(moveType) : movingPiece;
+
+        slots[base + movingPiece] ^= fromMask;
+        slots[base + arrivingPiece] ^= toMask;
+        slots[base + OCCUPANCY + side] ^= fromMask | toMask;
+
+        hash ^= PIECE_SQUARE_KEYS[movingPiece * BOARD_SIZE + from] ^ PIECE_SQUARE_KEYS[arrivingPiece * BOARD_SIZE + to];
+
+        switch (moveType) {
+
+            case DOUBLE_PAWN_PUSH -> {
+                enPassantSquare = (from + to) >>> 1;
+                hash ^= EN_PASSANT_KEYS[enPassantSquare];
+            }
+
+            case KING_SIDE_CASTLE -> hash ^= moveRook(side, to + 1, to - 1);
+            case QUEEN_SIDE_CASTLE -> hash ^= moveRook(side, to - 2, to + 1);
+        }
+
+        castlingRights &= CASTLING_MASK_BY_SQUARE[from] & CASTLING_MASK_BY_SQUARE[to];
+        hash ^= CASTLING_KEYS[castlingRights];
+
+        fullMoveCounter += side;
+
+        slots[base + STATE] = oppSide
+                | ((long) castlingRights << CASTLING_SHIFT)
+                | ((long) enPassantSquare << EN_PASSANT_SHIFT)
+                | ((long) halfMoveCounter << HALF_MOVE_SHIFT)
+                | ((long) fullMoveCounter << FULL_MOVE_SHIFT);
+
+        slots[base + HASH] = hash;
+
+        attackInfoValid = false;
+    }
+
+    /**
+     * Returns to the position before the last move. Only the ply pointer moves.
+     */
+    public void unmakeMove() {
+        base -= POSITION_SIZE;
+        attackInfoValid = false;
+    }
+
+    private long moveRook(int side, int rookFrom, int rookTo) {
+
+        int movingRook = W_ROOK + side;
+        long moveMask = 1L << rookFrom | 1L << rookTo;
+
+        slots[base + movingRook] ^= moveMask;
+        slots[base + OCCUPANCY + side] ^= moveMask;
+
+        return PIECE_SQUARE_KEYS[movingRook * BOARD_SIZE + rookFrom] ^ PIECE_SQUARE_KEYS[movingRook * BOARD_SIZE + rookTo];
+    }
+
+    //the piece of the side on the square, there is no mailbox to read it from
+    private int pieceOf(int side, long squareMask) {
+
+        int piece = W_PAWN + side;
+
+        while ((slots[base + piece] & squareMask) == 0) piece += 2;
+
+        return piece;
+    }
+
+    /* ==========================================================================================
+                                            state getters
+     ========================================================================================== */
+
+    /**
+     * Gets the number of moves made on top of the root position.
+     *
+     * @return the current ply
+     */
+    public int getPly() {
+        return base / POSITION_SIZE;
+    }
+
+    /**
+     * Retrieves the piece type currently residing on a specific square.
+     *
+     * @param square the square index (0-63)
+     * @return the piece identifier (e.g., {@code W_PAWN}), or {@code EMPTY_SQUARE}
+     */
+    public int pieceAt(int square) {
+
+        long squareMask = 1L << square;
+
+        if ((getOccupancy() & squareMask) == 0) return EMPTY_SQUARE;
+
+        return pieceOf((slots[base + OCCUPANCY + WHITE] & squareMask) != 0? WHITE : BLACK, squareMask);
+    }
+
+    /**
+     * Retrieves the bitboard for a specific piece type.
+     *
+     * @param piece the piece index (e.g., {@code W_PAWN}, {@code B_KING})
+     * @return the bitboard for that piece
+     */
+    public long getPieceBB(int piece) {
+        return slots[base + piece];
+    }
+
+    /**
+     * Retrieves the occupancy mask for a specific color.
+     *
+     * @param color The side to query (0) = WHITE | (1) = BLACK.
+     * @return A bitboard of all pieces belonging to the specified color.
+     */
+    public long getColorOccupancy(int color) {
+        return slots[base + OCCUPANCY + color];
+    }
+
+    /**
+     * Retrieves the occupancy mask for the entire board.
+     *
+     * @return A bitboard of all pieces.
+     */
+    public long getOccupancy() {
+        return slots[base + OCCUPANCY + WHITE] | slots[base + OCCUPANCY + BLACK];
+    }
+
+    /**
+     * Gets the side currently to move.
+     *
+     * @return {@code WHITE} (0) or {@code BLACK} (1)
+     */
+    public int getSide() {
+        return (int) (slots[base + STATE] & 1);
+    }
+
+    /**
+     * Retrieves the square currently available for an en passant capture.
+     *
+     * @return a bitboard with the target square set, or 0 if en passant is not available
+     */
+    public long getEnPassantTarget() {
+        int enPassantSquare = (int) (slots[base + STATE] >>> EN_PASSANT_SHIFT) & 0x7F;
+        return (enPassantSquare == BOARD_SIZE)? 0 : 1L << enPassantSquare;
+    }
+
+    /**
+     * Retrieves the current castling rights bitmask.
+     *
+     * @return a 4-bit integer in the same layout as {@link BoardState#castlingRights()}
+     */
+    public int castlingRights() {
+        return (int) (slots[base + STATE] >>> CASTLING_SHIFT) & 0xF;
+    }
+
+    /**
+     * Retrieves the zobrist hash of the current position.
+     *
+     * @return the 64-bit zobrist hash
+     */
+    public long getZobristHash() {
+        return slots[base + HASH];
+    }
+
+    /**
+     * Retrieves the number of half moves since the last capture or pawn move.
+     *
+     * @return the half move counter
+     */
+    public int getHalfMoveCounter() {
+        return (int) (slots[base + STATE] >>> HALF_MOVE_SHIFT) & 0xFFFF;
+    }
+
+    /**
+     * Retrieves the number of the current full move.
+     *
+     * @return the full move counter
+     */
+    public int getFullMoveCounter() {
+        return (int) (slots[base + STATE] >>> FULL_MOVE_SHIFT);
+    }
+
+    /* ==========================================================================================
+                                             attack info
+     ========================================================================================== */
+
+    /**
+     * Retrieves every square attacked by the opponent of the side to move, see {@link BoardState#getOppAttacks()}.
+     *
+     * @return a bitboard of all squares attacked (or defended) by the opponent
+     */
+    public long getOppAttacks() {
+        if (!attackInfoValid) computeAttackInfo();
+        return oppAttacks;
+    }
+
+    /**
+     * Retrieves the squares the king of the side to move must not step on, see {@link BoardState#getKingDanger()}.
+     *
+     * @return a bitboard of all squares unsafe for the king of the side to move
+     */
+    public long getKingDanger() {
+        if (!attackInfoValid) computeAttackInfo();
+        return kingDanger;
+    }
+
+    /**
+     * Retrieves the opponent pieces currently giving check to the side to move.
+     *
+     * @return a bitboard of all checking pieces, 0 if the side to move is not in check
+     */
+    public long getCheckers() {
+        if (!attackInfoValid) computeAttackInfo();
+        return checkers;
+    }
+
+    /**
+     * Retrieves the pieces of the side to move that are absolutely pinned to their king.
+     *
+     * @return a bitboard of all pinned pieces
+     */
+    public long getPinned() {
+        if (!attackInfoValid) computeAttackInfo();
+        return pinned;
+    }
+
+    private void computeAttackInfo() {
+
+        int side = getSide();
+        int oppSide = 1 ^ side;
+
+        long myOcc = slots[base + OCCUPANCY + side];
+        long fullOcc = myOcc | slots[base + OCCUPANCY + oppSide];
+
+        long king = slots[base + W_KING + side];
+        int kingSq = Long.numberOfTrailingZeros(king);
+
+        long oppPawns = slots[base + W_PAWN + oppSide];
+        long oppKnights = slots[base + W_KNIGHT + oppSide];
+        long oppBishopsQueens = slots[base + W_BISHOP + oppSide] | slots[base + W_QUEEN + oppSide];
+        long oppRooksQueens = slots[base + W_ROOK + oppSide] | slots[base + W_QUEEN + oppSide];
+
+        oppAttacks = Attacks.allAtk(oppSide, oppPawns, oppKnights, oppBishopsQueens, oppRooksQueens, slots[base + W_KING + oppSide], fullOcc);
+        checkers = Attacks.checkers(kingSq, side, oppPawns, oppKnights, oppBishopsQueens, oppRooksQueens, fullOcc);
+        kingDanger = Attacks.kingDanger(oppAttacks, checkers, king, oppBishopsQueens, oppRooksQueens, fullOcc);
+        pinned = Attacks.pinnedPieces(kingSq, myOcc, oppBishopsQueens, oppRooksQueens, fullOcc);
+
+        attackInfoValid = true;
+    }
+}
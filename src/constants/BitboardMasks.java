@@ -1,5 +1,11 @@
 package constants;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+
 import static constants.BoardConstants.*;
 
 /**
@@ -12,6 +18,9 @@ import static constants.BoardConstants.*;
  * that allows for O(1) lookup of sliding attacks by hashing the specific blocker configuration
  * on the board.</li>
  * </ul>
+ * Sliding attacks are also available through a PEXT backend, whose tables are indexed by extracting
+ * the relevant blocker bits with {@link Long#compress(long, long)} instead of magic hashing
+ * (see {@link #USE_PEXT}).
  */
 public class BitboardMasks {
 
@@ -39,6 +48,32 @@ public class BitboardMasks {
      */
     public static final long[] KING_MASK = new long[BOARD_SIZE];
 
+    /**
+     * Stores the squares strictly between two squares sharing a rank, file or diagonal
+     * (0 if the squares are not aligned).
+     * <p>
+     * Accessed via {@code BETWEEN[from * BOARD_SIZE + to]}.
+     */
+    public static final long[] BETWEEN = new long[BOARD_SIZE * BOARD_SIZE];
+
+    /**
+     * Stores the full rank, file or diagonal through two aligned squares, edge to edge and including both squares
+     * (0 if the squares are not aligned).
+     * <p>
+     * Accessed via {@code LINE[from * BOARD_SIZE + to]}.
+     */
+    public static final long[] LINE = new long[BOARD_SIZE * BOARD_SIZE];
+
+    /**
+     * The eight ray directions as bit shifts, ordered in opposite pairs (N/S, E/W, NE/SW, NW/SE).
+     */
+    private static final int[] DIRECTION_SHIFTS = {8, -8, 1, -1, 9, -9, 7, -7};
+
+    /**
+     * Squares that may step in the direction of the same index without wrapping around the board.
+     */
+    private static final long[] DIRECTION_GUARDS = {~0L, ~0L, ~H_FILE, ~A_FILE, ~H_FILE, ~A_FILE, ~A_FILE, ~H_FILE};
+
     // Sizes determined by summing 2^bits for all squares (fancy magic bitboards size)
     private static final int BISHOP_MASK_SIZE = 5248;
     private static final int ROOK_MASK_SIZE = 102400;
@@ -70,6 +105,108 @@ public class BitboardMasks {
      */
     public static final long[] ROOK_MASK = new long[ROOK_MASK_SIZE];
     
+    /**
+     * Whether the sliding piece lookups use the PEXT tables instead of the magic tables.
+     * <p>
+     * Chosen once at startup via the system property {@code slider.backend}:
+     * <ul>
+     * <li>{@code pext}: always use {@link #BISHOP_PEXT_MASK} / {@link #ROOK_PEXT_MASK}.</li>
+     * <li>{@code magic} (default): always use the magic tables.</li>
+     * <li>{@code auto}: use PEXT on x86-64 CPUs reporting BMI2, where {@link Long#compress(long, long)}
+     * is intrinsified to a single {@code PEXT} instruction. AMD CPUs before Zen 3 (family 0x19) report BMI2 but
+     * execute {@code PEXT} in microcode, far slower than a magic lookup, so they keep the magic tables.</li>
+     * </ul>
+     * Any other value fails class initialization. The backend is only switched on request, so a run
+     * on a BMI2 host is not silently timed against different tables.
+     */
+    public static final boolean USE_PEXT = detectPext();
+
+    /**
+     * The dense lookup table for Bishop attacks used by the PEXT backend.
+     * <p>
+     * Shares the per-square layout of {@link #BISHOP_MASK} ({@link #BISHOP_MBB_OFFSETS}), but every square's
+     * block is indexed by {@code Long.compress(fullOcc, BISHOP_BLOCKER_MASK[square])}, so no magic numbers are needed.
+     * Empty unless {@link #USE_PEXT} is set.
+     */
+    public static final long[] BISHOP_PEXT_MASK = new long[USE_PEXT? BISHOP_MASK_SIZE : 0];
+
+    /**
+     * The dense lookup table for Rook attacks used by the PEXT backend.
+     * <p>
+     * Shares the per-square layout of {@link #ROOK_MASK} ({@link #ROOK_MBB_OFFSETS}), but every square's
+     * block is indexed by {@code Long.compress(fullOcc, ROOK_BLOCKER_MASK[square])}, so no magic numbers are needed.
+     * Empty unless {@link #USE_PEXT} is set.
+     */
+    public static final long[] ROOK_PEXT_MASK = new long[USE_PEXT? ROOK_MASK_SIZE : 0];
+
+    /**
+     * Whether the magic backend reads its attacks through the compressed tables
+     * ({@link #BISHOP_ATTACK_REFS} / {@link #ROOK_ATTACK_REFS}) instead of the flat ones.
+     * <p>
+     * Chosen once at startup via the system property {@code slider.tables} ({@code flat} by default,
+     * or {@code compressed}). Only affects the magic backend, see {@link #USE_PEXT}.
+     */
+    public static final boolean USE_COMPRESSED_TABLES = System.getProperty("slider.tables", "flat").equals("compressed");
+
+    /**
+     * Every distinct bishop attack set, stored exactly once.
+     * Empty unless {@link #USE_COMPRESSED_TABLES} is set.
+     */
+    public static final long[] BISHOP_ATTACKS;
+
+    /**
+     * Compressed equivalent of {@link #BISHOP_MASK}: same magic indexing, but each entry is a 16-bit
+     * reference into {@link #BISHOP_ATTACKS} instead of the attack set itself.
+     * Empty unless {@link #USE_COMPRESSED_TABLES} is set.
+     */
+    public static final char[] BISHOP_ATTACK_REFS = new char[USE_COMPRESSED_TABLES? BISHOP_MASK_SIZE : 0];
+
+    /**
+     * Every distinct rook attack set, stored exactly once.
+     * Empty unless {@link #USE_COMPRESSED_TABLES} is set.
+     */
+    public static final long[] ROOK_ATTACKS;
+
+    /**
+     * Compressed equivalent of {@link #ROOK_MASK}: same magic indexing, but each entry is a 16-bit
+     * reference into {@link #ROOK_ATTACKS} instead of the attack set itself.
+     * <p>
+     * Roughly 200 KB of references plus under 40 KB of distinct sets, compared to 800 KB for the
+     * flat table, so the rook lookups fit into L2 next to the transposition table.
+     * Empty unless {@link #USE_COMPRESSED_TABLES} is set.
+     */
+    public static final char[] ROOK_ATTACK_REFS = new char[USE_COMPRESSED_TABLES? ROOK_MASK_SIZE : 0];
+
+    /**
+     * Number of {@code long} slots per square in the packed magic entry tables.
+     */
+    public static final int MAGIC_ENTRY_SIZE = 4;
+
+    /** Slot of the relevant blocker mask within a packed magic entry. */
+    public static final int ENTRY_MASK = 0;
+    /** Slot of the magic number within a packed magic entry. */
+    public static final int ENTRY_MAGIC = 1;
+    /** Slot of the precomputed shift ({@code 64 - relevant bits}) within a packed magic entry. */
+    public static final int ENTRY_SHIFT = 2;
+    /** Slot of the offset into the attack table within a packed magic entry. */
+    public static final int ENTRY_OFFSET = 3;
+
+    /**
+     * Packed per-square magic data for bishops.
+     * <p>
+     * Everything a lookup needs besides the attack itself (blocker mask, magic, shift, offset)
+     * lies contiguously in 32 bytes per square, so a lookup touches one entry instead of
+     * four separate arrays and no longer needs a {@code Long.bitCount} for the shift.
+     * <p>
+     * Accessed via {@code BISHOP_MAGIC_ENTRIES[square * MAGIC_ENTRY_SIZE + ENTRY_*]}.
+     */
+    public static final long[] BISHOP_MAGIC_ENTRIES = new long[BOARD_SIZE * MAGIC_ENTRY_SIZE];
+
+    /**
+     * Packed per-square magic data for rooks, laid out like {@link #BISHOP_MAGIC_ENTRIES}.
+     */
+    public static final long[] ROOK_MAGIC_ENTRIES = new long[BOARD_SIZE * MAGIC_ENTRY_SIZE];
+
     /**
      * Offsets into the {@link #BISHOP_MASK} array for each square.
      */
@@ -140,8 +277,9 @@ public class BitboardMasks {
 
             //all pawns that are not on the A file are shifted by 7 bits to the left/right to calculate all valid NW/SE attacks
             //all pawns that are not on the H file are shifted by 9 bits to the left/right to calculate all valid NE/SW attacks
-            PAWN_MASK[sq] = ((fromMask & ~FIRST_RANK) & ~A_FILE) << 7 |  ((fromMask & ~FIRST_RANK) & ~H_FILE) << 9;
-            PAWN_MASK[BOARD_SIZE + sq] = ((fromMask & ~EIGHT_RANK) & ~A_FILE) >>> 9 |  ((fromMask & ~EIGHT_RANK) & ~H_FILE) >>> 7;
+            //back ranks are kept as well, so the table also answers reverse lookups ("which pawns attack this square")
+            PAWN_MASK[sq] = (fromMask & ~A_FILE) << 7 |  (fromMask & ~H_FILE) << 9;
+            PAWN_MASK[BOARD_SIZE + sq] = (fromMask & ~A_FILE) >>> 9 |  (fromMask & ~H_FILE) >>> 7;
 
             KNIGHT_MASK[sq] =
                     (fromMask & ~A_FILE) >>> 17 | (fromMask & ~A_FILE) << 15
@@ -160,8 +298,98 @@ public class BitboardMasks {
             BISHOP_BLOCKER_MASK[sq] = bishopEmptyAttacks(fromMask) & ~(A_FILE | H_FILE | FIRST_RANK | EIGHT_RANK);
         }
 
+        populateLines();
+
         populateBishopMBB();
         populateRookMBB();
+
+        packMagicEntries(BISHOP_MAGIC_ENTRIES, BISHOP_BLOCKER_MASK, BISHOP_MAGICS, BISHOP_MBB_OFFSETS);
+        packMagicEntries(ROOK_MAGIC_ENTRIES, ROOK_BLOCKER_MASK, ROOK_MAGICS, ROOK_MBB_OFFSETS);
+
+        //deduplicating boxes every flat entry, so it only runs when the compressed tables are read
+        if (USE_COMPRESSED_TABLES) {
+            BISHOP_ATTACKS = compressAttacks(BISHOP_MASK, BISHOP_ATTACK_REFS);
+            ROOK_ATTACKS = compressAttacks(ROOK_MASK, ROOK_ATTACK_REFS);
+        } else {
+            BISHOP_ATTACKS = new long[0];
+            ROOK_ATTACKS = new long[0];
+        }
+    }
+
+    /**
+     * Deduplicates a flat attack table.
+     *
+     * @param flatTable the flat attack table
+     * @param refs filled with the index of each entry's attack set in the returned array
+     * @return every distinct attack set of {@code flatTable}, each stored once
+     */
+    private static long[] compressAttacks(long[] flatTable, char[] refs) {
+
+        HashMap<Long, Integer> distinctIndex = new HashMap<>();
+        long[] distinct = new long[flatTable.length];
+
+        for (int i = 0; i < flatTable.length; i++) {
+
+            int ref = distinctIndex.computeIfAbsent(flatTable[i], attacks -> distinctIndex.size());
+            distinct[ref] = flatTable[i];
+
+            refs[i] = (char) ref;
+        }
+
+        return Arrays.copyOf(distinct, distinctIndex.size());
+    }
+
+    private static void packMagicEntries(long[] entries, long[] blockerMasks, long[] magics, int[] offsets) {
+
+        for (int sq = 0; sq < BOARD_SIZE; sq++) {
+
+            int base = sq * MAGIC_ENTRY_SIZE;
+
+            entries[base + ENTRY_MASK] = blockerMasks[sq];
+            entries[base + ENTRY_MAGIC] = magics[sq];
+            entries[base + ENTRY_SHIFT] = BOARD_SIZE - Long.bitCount(blockerMasks[sq]);
+            entries[base + ENTRY_OFFSET] = offsets[sq];
+        }
+    }
+
+    private static void populateLines() {
+
+        for (int sq = 0; sq < BOARD_SIZE; sq++) {
+
+            long fromMask = 1L << sq;
+
+            for (int dir = 0; dir < DIRECTION_SHIFTS.length; dir++) {
+
+                //dir ^ 1 is the opposite direction
+                long line = emptyRay(fromMask, dir) | emptyRay(fromMask, dir ^ 1) | fromMask;
+                long between = 0;
+
+                for (long toMask = step(fromMask, dir); toMask != 0; toMask = step(toMask, dir)) {
+
+                    int to = Long.numberOfTrailingZeros(toMask);
+
+                    BETWEEN[sq * BOARD_SIZE + to] = between;
+                    LINE[sq * BOARD_SIZE + to] = line;
+
+                    between |= toMask;
+                }
+            }
+        }
+    }
+
+    private static long emptyRay(long fromMask, int dir) {
+        long ray = 0L;
+
+        for (long toMask = step(fromMask, dir); toMask != 0; toMask = step(toMask, dir)) ray |= toMask;
+
+        return ray;
+    }
+
+    private static long step(long mask, int dir) {
+        int shift = DIRECTION_SHIFTS[dir];
+        mask &= DIRECTION_GUARDS[dir];
+
+        return (shift > 0)? mask << shift : mask >>> -shift;
     }
 
     private static long bishopEmptyAttacks(long fromMask)   {
@@ -214,10 +442,11 @@ public class BitboardMasks {
 
                 int index = (int) ((magic * blockerSubset) >>> shift);
 
+                BISHOP_MASK[offset + index] = (NE | SE | SW | NW);
+                if (USE_PEXT) BISHOP_PEXT_MASK[offset + (int) Long.compress(blockerSubset, blockerMask)] = (NE | SE | SW | NW);
+
                 // Carry-Rippler Step
                 blockerSubset = (blockerSubset - blockerMask) & blockerMask;
-
-                BISHOP_MASK[offset + index] = (NE | SE | SW | NW);
             }
         }
     }
@@ -253,11 +482,52 @@ public class BitboardMasks {
 
                 int index = (int) ((blockerSubset * magic) >>> shift);
 
+                ROOK_MASK[offset + index] = (N | E | S | W);
+                if (USE_PEXT) ROOK_PEXT_MASK[offset + (int) Long.compress(blockerSubset, blockerMask)] = (N | E | S | W);
+
                 // Carry-Rippler Step
                 blockerSubset = (blockerSubset - blockerMask) & blockerMask;
-
-                ROOK_MASK[offset + index] = (N | E | S | W);
             }
         }
     }
+
+    private static boolean detectPext() {
+
+        String backend = System.getProperty("slider.backend", "magic");
+
+        switch (backend) {
+            case "pext" -> { return true; }
+            case "magic" -> { return false; }
+            case "auto" -> {}
+            default -> throw new IllegalArgumentException("unknown slider.backend: " + backend + " (pext, magic or auto)");
+        }
+
+        String arch = System.getProperty("os.arch");
+        if (!arch.equals("amd64") && !arch.equals("x86_64")) return false;
+
+        //only Linux exposes the CPU flags without native code, everywhere else the magic backend is kept
+        String cpuInfo;
+        try {
+            cpuInfo = Files.readString(Path.of("/proc/cpuinfo"));
+        } catch (IOException | SecurityException e) {
+            return false;
+        }
+
+        if (!cpuInfo.contains(" bmi2")) return false;
+
+        //Zen 1 / Zen 2 (family 0x17), their Hygon clones (0x18) and older AMD cores run PEXT in microcode
+        boolean amd = cpuInfo.contains("AuthenticAMD") || cpuInfo.contains("HygonGenuine");
+
+        return !amd || cpuFamily(cpuInfo) >= 0x19;
+    }
+
+    //the "cpu family" of the first core listed in /proc/cpuinfo, 0 if missing
+    private static int cpuFamily(String cpuInfo) {
+
+        for (String line : cpuInfo.split("\n")) {
+            if (line.startsWith("cpu family")) return Integer.parseInt(line.substring(line.indexOf(':') + 1).trim());
+        }
+
+        return 0;
+    }
 }
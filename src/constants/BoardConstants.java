@@ -86,6 +86,10 @@ public class BoardConstants {
     public static final long SEVENTH_RANK = 0x00FF000000000000L;
     public static final long EIGHT_RANK = 0xFF00000000000000L;
 
+    // ============== SQUARE COLOURS ==============
+    public static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
+    public static final long DARK_SQUARES = 0xAA55AA55AA55AA55L;
+
     // =============== CASTLING MASKS ==============
     /**
      * A lookup table used to update castling rights efficiently.
@@ -108,6 +112,17 @@ public class BoardConstants {
      */
     public static final int[] HALF_MOVE_RESET_MASK = {0, 0, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1};
 
+    // =============== MATERIAL KEY ===============
+    /** Amount one piece adds to the material key, which counts every piece type in 4 bits:
+     * bits {@code 4 * piece} to {@code 4 * piece + 3} hold the number of pieces {@code piece}. Kings are not counted.
+     */
+    public static final long[] MATERIAL_KEY_UNIT = {
+            1L, 1L << 4, 1L << 8, 1L << 12, 1L << 16, 1L << 20, 1L << 24, 1L << 28, 1L << 32, 1L << 36, 0, 0
+    };
+
+    /** Material key of the starting position: 8 pawns, 2 knights, 2 bishops, 2 rooks and 1 queen per side. */
+    public static final long STARTING_MATERIAL_KEY = 0x11_2222_2288L;
+
     // ============= MOVE TYPE FLAGS ==============
     public static final short QUIET_MOVE = 0x0;
     public static final short DOUBLE_PAWN_PUSH = 0x1;
@@ -117,6 +132,9 @@ public class BoardConstants {
     public static final short EP_CAPTURE = 0x5;
     public static final short PROMOTION = 0x8;
 
+    /** Marks a passed turn in the move history. Encodes "a1a1", which is never a real move. */
+    public static final short NULL_MOVE = 0x0;
+
     public static final int PROMO_N = 8;
     public static final int PROMO_B = 9;
     public static final int PROMO_R = 10;
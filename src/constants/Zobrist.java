@@ -54,6 +54,18 @@ public class Zobrist {
      */
     public static final long STARTING_HASH;
 
+    /**
+     * Selects the pieces that are part of the pawn key: all ones for pawns and kings, 0 for all other pieces.
+     * <p>
+     * <b>Indexing:</b> {@code [PieceType]}
+     */
+    public static final long[] PAWN_KEY_MASK = {-1L, -1L, 0, 0, 0, 0, 0, 0, 0, 0, -1L, -1L};
+
+    /**
+     * The pre-calculated pawn key (pawns and kings only) of the standard chess starting position.
+     */
+    public static final long STARTING_PAWN_KEY;
+
     static{
         long defaultPosition1 = 0;
         Random random = new Random(1);
@@ -109,5 +121,13 @@ public class Zobrist {
         defaultPosition1 ^= EN_PASSANT_KEYS[64];
         defaultPosition1 ^= CASTLING_KEYS[15];
         STARTING_HASH = defaultPosition1;
+
+        long pawnKey = PIECE_SQUARE_KEYS[W_KING * BOARD_SIZE + 4] ^ PIECE_SQUARE_KEYS[B_KING * BOARD_SIZE + 60];
+
+        for (int i = 0; i < 8; i++) {
+            pawnKey ^= PIECE_SQUARE_KEYS[W_PAWN * BOARD_SIZE + 8 + i] ^ PIECE_SQUARE_KEYS[B_PAWN * BOARD_SIZE + 48 + i];
+        }
+
+        STARTING_PAWN_KEY = pawnKey;
     }
 }
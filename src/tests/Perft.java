@@ -7,6 +7,8 @@ import board.MoveGen;
 import tools.FenUtil;
 import tools.PosVisualiser;
 
+import static constants.BoardConstants.MAX_MOVES;
+
 /**
  * Performance Test (Perft) runner for validating the move generator.
  * <p>
@@ -16,6 +18,11 @@ import tools.PosVisualiser;
  * <li><b>Starting Position:</b> Standard initial chess state.</li>
  * <li><b>Kiwipete:</b> A famous position designed to test edge cases (discovered checks, promotions, en passant).</li>
  * </ul>
+ * Both positions are counted with {@link MoveGen#legalMoves(BoardState, short[])}, and once more with the
+ * pseudo-legal generator ({@link MoveGen#moves(BoardState, short[])}), where every move is made and rejected
+ * if it leaves the own king in check. The pseudo-legal pass also checks every generated move with
+ * {@link MoveGen#isPseudoLegal(BoardState, short)}.
+ * <p>
  * * Usage: Run {@code main()} to execute the suite. If counts match, the move generator is likely correct.
  */
 public class Perft {
@@ -33,27 +40,62 @@ public class Perft {
     private static final long KIWIPETE_PERFT_5 = 193_690_690;
     private static final String KIWIPETE_FEN = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
 
+    private static final int MAX_DEPTH = 16;
+
+    /**
+     * The deepest level of the pseudo-legal pass. It makes every leaf move, so it stops one ply earlier.
+     */
+    private static final int PSEUDO_LEGAL_MAX_DEPTH = 4;
+
+    /**
+     * Bulk counting: at depth 1 the number of legal moves is returned straight from the generator
+     * instead of making, recursing into and unmaking every leaf move.
+     * Set to {@code false} to also exercise {@code makeMove}/{@code unmakeMove} at the leaves.
+     */
+    private static final boolean BULK_COUNTING = true;
+
+    /**
+     * One reusable move buffer per ply, indexed by the remaining depth.
+     * Avoids allocating a new move list at every node.
+     */
+    private static final short[][] MOVE_BUFFERS = new short[MAX_DEPTH + 1][MAX_MOVES];
+
     public static void main(String[] args) {
 
         BoardState boardState = new BoardState();
 
         System.out.println("\nSTARTING POS PERFT:\n");
 
-        runPerftTest(1, boardState, SIMPLE_PERFT_1);
-        runPerftTest(2, boardState, SIMPLE_PERFT_2);
-        runPerftTest(3, boardState, SIMPLE_PERFT_3);
-        runPerftTest(4, boardState, SIMPLE_PERFT_4);
-        runPerftTest(5, boardState, SIMPLE_PERFT_5);
+        long[] simpleCounts = {SIMPLE_PERFT_1, SIMPLE_PERFT_2, SIMPLE_PERFT_3, SIMPLE_PERFT_4, SIMPLE_PERFT_5};
+        long[] kiwipeteCounts = {KIWIPETE_PERFT_1, KIWIPETE_PERFT_2, KIWIPETE_PERFT_3, KIWIPETE_PERFT_4, KIWIPETE_PERFT_5};
+
+        for (int depth = 1; depth <= simpleCounts.length; depth++) {
+            runPerftTest(depth, boardState, simpleCounts[depth - 1], false);
+        }
 
         System.out.println("\nKIWIPETE PERFT:\n");
 
         FenUtil.setPos(boardState, KIWIPETE_FEN);
 
-        runPerftTest(1, boardState, KIWIPETE_PERFT_1);
-        runPerftTest(2, boardState, KIWIPETE_PERFT_2);
-        runPerftTest(3, boardState, KIWIPETE_PERFT_3);
-        runPerftTest(4, boardState, KIWIPETE_PERFT_4);
-        runPerftTest(5, boardState, KIWIPETE_PERFT_5);
+        for (int depth = 1; depth <= kiwipeteCounts.length; depth++) {
+            runPerftTest(depth, boardState, kiwipeteCounts[depth - 1], false);
+        }
+
+        System.out.println("\nPSEUDO-LEGAL STARTING POS PERFT:\n");
+
+        boardState = new BoardState();
+
+        for (int depth = 1; depth <= PSEUDO_LEGAL_MAX_DEPTH; depth++) {
+            runPerftTest(depth, boardState, simpleCounts[depth - 1], true);
+        }
+
+        System.out.println("\nPSEUDO-LEGAL KIWIPETE PERFT:\n");
+
+        FenUtil.setPos(boardState, KIWIPETE_FEN);
+
+        for (int depth = 1; depth <= PSEUDO_LEGAL_MAX_DEPTH; depth++) {
+            runPerftTest(depth, boardState, kiwipeteCounts[depth - 1], true);
+        }
 
         System.out.println("\nPERFT PASSED!");
 
@@ -65,11 +107,11 @@ public class Perft {
 //        runPerftTest(1, boardState, 45);
     }
 
-    private static void runPerftTest(int depth, BoardState boardState, long expected) {
+    private static void runPerftTest(int depth, BoardState boardState, long expected, boolean pseudoLegal) {
 
         long startTime = System.nanoTime();
 
-        long result = perft(depth, depth, boardState);
+        long result = pseudoLegal? pseudoLegalPerft(depth, boardState) : perft(depth, depth, boardState);
 
         long endTime = System.nanoTime();
         long durationNano = endTime - startTime;
@@ -102,28 +144,23 @@ public class Perft {
 
         long count = 0;
 
-        short[] moves = MoveGen.moves(boardState);
-        int index = 0;
+        short[] moves = MOVE_BUFFERS[depth];
+        int moveCount = MoveGen.legalMoves(boardState, moves);
 
-        while (moves[index] != -1) {
+        //every legal move is exactly one leaf node
+        if (BULK_COUNTING && depth == 1) {
+            return moveCount;
+        }
 
-            int curSide = boardState.getSide();
+        for (int index = 0; index < moveCount; index++) {
 
             boardState.makeMove(moves[index]);
 
-            String debugger = Move.toString(moves[index]) + " - ";
-            index++;
-
-            if (Attacks.isInCheck(boardState, curSide)) {
-                boardState.unmakeMove();
-                continue;
-            }
-
             long perft = perft(initialDepth, depth - 1, boardState);
 
             //uncomment when debugging
             //validated using https://analog-hors.github.io/webperft/
-//            if(depth == initialDepth) System.out.println(debugger + perft);
+//            if(depth == initialDepth) System.out.println(Move.toString(moves[index]) + " - " + perft);
 
             count += perft;
             boardState.unmakeMove();
@@ -131,4 +168,40 @@ public class Perft {
 
         return count;
     }
+
+    /**
+     * Perft over the pseudo-legal generator: every move is made, and it only counts
+     * if the side that moved is not left in check.
+     */
+    private static long pseudoLegalPerft(int depth, BoardState boardState) {
+
+        if (depth == 0) {
+            return 1;
+        }
+
+        long count = 0;
+
+        short[] moves = MOVE_BUFFERS[depth];
+        int moveCount = MoveGen.moves(boardState, moves);
+
+        int side = boardState.getSide();
+
+        for (int index = 0; index < moveCount; index++) {
+
+            if (!MoveGen.isPseudoLegal(boardState, moves[index])) {
+                System.err.println("Generated move rejected by isPseudoLegal: " + Move.toString(moves[index]));
+                System.exit(1);
+            }
+
+            boardState.makeMove(moves[index]);
+
+            if (!Attacks.isInCheck(boardState, side)) {
+                count += pseudoLegalPerft(depth - 1, boardState);
+            }
+
+            boardState.unmakeMove();
+        }
+
+        return count;
+    }
 }
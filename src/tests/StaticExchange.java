@@ -0,0 +1,129 @@
+package tests;
+
+import board.Attacks;
+import board.BoardState;
+import board.Move;
+import board.MoveGen;
+import tools.FenUtil;
+
+import static constants.BoardConstants.MAX_MOVES;
+
+/**
+ * Validates the static exchange evaluation in {@link Attacks}.
+ * <p>
+ * It includes:
+ * <ul>
+ * <li><b>Known exchanges:</b> Positions with a hand-checked SEE value for one move.</li>
+ * <li><b>Threshold consistency:</b> {@code seeGE} must agree with {@code see(...) >= threshold} for every
+ * pseudo-legal move of a small tree and a range of thresholds.</li>
+ * </ul>
+ * Usage: Run {@code main()} to execute the suite.
+ */
+public class StaticExchange {
+
+    private static final String KIWIPETE_FEN = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    /**
+     * FEN, move, expected SEE value.
+     */
+    private static final String[][] KNOWN_EXCHANGES = {
+            {"1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1", "e1e5", "100"},
+            {"1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1", "d3e5", "-200"},
+            {"4k3/8/2p5/3p4/4P3/8/8/4K3 w - - 0 1", "e4d5", "0"},
+            {"4k3/8/2p5/3r4/4P3/8/8/4K3 w - - 0 1", "e4d5", "400"},
+
+            //the king on d6 cannot recapture on c5, the queen x-rays through it
+            {"r2r3N/2ppQ3/pn1k1pp1/3n4/1p2PP2/3BB2P/PPP2K1P/1R1N3R b - - 0 1", "c7c5", "-100"},
+    };
+
+    private static final int CONSISTENCY_DEPTH = 3;
+    private static final int MIN_THRESHOLD = -1200;
+    private static final int MAX_THRESHOLD = 1200;
+    private static final int THRESHOLD_STEP = 25;
+
+    private static final short[][] MOVE_BUFFERS = new short[CONSISTENCY_DEPTH + 1][MAX_MOVES];
+    private static final int[] SWAP_LIST = new int[Attacks.MAX_EXCHANGE];
+
+    public static void main(String[] args) {
+
+        BoardState boardState = new BoardState();
+
+        System.out.println("\nKNOWN EXCHANGES:\n");
+
+        for (String[] exchange : KNOWN_EXCHANGES) {
+
+            FenUtil.setPos(boardState, exchange[0]);
+
+            short move = findMove(boardState, exchange[1]);
+            int expected = Integer.parseInt(exchange[2]);
+            int result = Attacks.see(boardState, move);
+
+            if (result != expected) {
+                System.err.printf("%s %s: FAIL! (Expected: %d, Got: %d)%n", exchange[0], exchange[1], expected, result);
+                System.exit(1);
+            }
+
+            if (!Attacks.seeGE(boardState, move, expected) || Attacks.seeGE(boardState, move, expected + 1)) {
+                System.err.printf("%s %s: FAIL! (seeGE disagrees with %d)%n", exchange[0], exchange[1], expected);
+                System.exit(1);
+            }
+
+            System.out.printf("%-8s PASS | SEE: %d%n", exchange[1], result);
+        }
+
+        System.out.println("\nTHRESHOLD CONSISTENCY:\n");
+
+        FenUtil.setPos(boardState, KIWIPETE_FEN);
+        System.out.printf("Probes: %,d%n", checkConsistency(CONSISTENCY_DEPTH, boardState));
+
+        System.out.println("\nSEE PASSED!");
+    }
+
+    private static short findMove(BoardState boardState, String moveString) {
+
+        short[] moves = MOVE_BUFFERS[0];
+        int moveCount = MoveGen.moves(boardState, moves);
+
+        for (int index = 0; index < moveCount; index++) {
+            if (Move.toString(moves[index]).equals(moveString)) return moves[index];
+        }
+
+        throw new IllegalArgumentException("no such move: " + moveString);
+    }
+
+    private static long checkConsistency(int depth, BoardState boardState) {
+
+        long probes = 0;
+
+        //every pseudo-legal move is evaluated, legal ones are walked into
+        short[] moves = MOVE_BUFFERS[depth];
+        int moveCount = MoveGen.moves(boardState, moves);
+
+        for (int index = 0; index < moveCount; index++) {
+
+            int see = Attacks.see(boardState, moves[index], SWAP_LIST);
+
+            for (int threshold = MIN_THRESHOLD; threshold <= MAX_THRESHOLD; threshold += THRESHOLD_STEP) {
+
+                probes++;
+
+                if ((see >= threshold) != Attacks.seeGE(boardState, moves[index], threshold)) {
+                    System.err.printf("%s: FAIL! (SEE: %d, seeGE disagrees at %d)%n", Move.toString(moves[index]), see, threshold);
+                    System.exit(1);
+                }
+            }
+        }
+
+        if (depth == 0) return probes;
+
+        moveCount = MoveGen.legalMoves(boardState, moves);
+
+        for (int index = 0; index < moveCount; index++) {
+            boardState.makeMove(moves[index]);
+            probes += checkConsistency(depth - 1, boardState);
+            boardState.unmakeMove();
+        }
+
+        return probes;
+    }
+}
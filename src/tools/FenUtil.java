@@ -126,15 +126,6 @@ public class FenUtil {
     }
 
     private static void setPiece(BoardState boardState, int square, int piece) {
-
-        boardState.setPieceAt(square, piece);
-
-        long mask = 1L << square;
-
-        boardState.updatePieceBB(piece, mask);
-        boardState.updateOccupancy(piece & 1, mask);
-
-        long zobristMask = PIECE_SQUARE_KEYS[piece * BOARD_SIZE + square];
-        boardState.updateZobristHash(zobristMask);
+        boardState.placePiece(square, piece);
     }
 }